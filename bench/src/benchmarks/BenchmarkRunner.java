@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Запуск: аргументом можно передать регулярное выражение для выбора бенчмарков, например "Epic"
+public class BenchmarkRunner {
+    // Бенчмарки однократного замера: каждый запускается отдельно, без прогрева
+    private static final List<String> SINGLE_SHOT = List.of(
+            ColdStartBenchmark.class.getName(), FootprintBenchmark.class.getName());
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmarks\\..*";
+        if (SINGLE_SHOT.stream().noneMatch(name -> include.contains(name.substring(name.lastIndexOf('.') + 1)))) {
+            new Runner(steadyState(include)).run();
+        }
+        for (String benchmark : SINGLE_SHOT) {
+            if (Pattern.compile(include).matcher(benchmark + ".").find()) {
+                new Runner(singleShot(benchmark)).run();
+            }
+        }
+    }
+
+    private static Options steadyState(String include) {
+        return new OptionsBuilder()
+                .include(include)
+                .exclude(Pattern.quote(SINGLE_SHOT.get(0)))
+                .exclude(Pattern.quote(SINGLE_SHOT.get(1)))
+                .mode(Mode.Throughput)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .build();
+    }
+
+    // Холодный старт и удерживаемая память: каждый замер - единственный вызов без прогрева в новой JVM
+    private static Options singleShot(String benchmark) {
+        return new OptionsBuilder()
+                .include(Pattern.quote(benchmark))
+                .mode(Mode.SingleShotTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .forks(5)
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import taskmanager.TaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+final class Boards {
+    static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+    static final int SUBTASKS_PER_EPIC = 10;
+
+    private Boards() {
+    }
+
+    // Половина элементов доски - задачи, остальное - эпики с подзадачами; у всех свой непересекающийся слот
+    static void fill(TaskManager manager, int size) {
+        int slot = 0;
+        int tasks = size / 2;
+        for (int i = 0; i < tasks; i++) {
+            manager.createTask(timed(new Task("Task" + i, "Описание задачи " + i, Status.NEW), slot++));
+        }
+        int remaining = size - tasks;
+        while (remaining > 0) {
+            Epic epic = manager.createEpic(new Epic("Epic" + slot, "Описание эпика"));
+            remaining--;
+            for (int j = 0; j < SUBTASKS_PER_EPIC && remaining > 0; j++, remaining--) {
+                Status status = Status.values()[j % Status.values().length];
+                manager.createSubtask(timed(new Subtask("Sub" + slot, "Описание подзадачи", status, epic.getId()), slot++));
+            }
+        }
+    }
+
+    static <T extends Task> T timed(T task, int slot) {
+        task.setStartTime(BASE.plusHours(slot));
+        task.setDuration(Duration.ofMinutes(30));
+        return task;
+    }
+
+    // Файл той же структуры, что и после fill, но без сохранения на каждом шаге
+    static void writeCsv(File file, int size) throws IOException {
+        StringBuilder builder = new StringBuilder("id,type,name,status,description,epic,startTime,duration\n");
+        int id = 1;
+        int tasks = size / 2;
+        for (int i = 0; i < tasks; i++, id++) {
+            builder.append(id).append(",TASK,Task").append(i).append(",NEW,Описание задачи ").append(i)
+                    .append(",,").append(BASE.plusHours(id)).append(",30\n");
+        }
+        StringBuilder subtasks = new StringBuilder();
+        int remaining = size - tasks;
+        while (remaining > 0) {
+            int epicId = id++;
+            builder.append(epicId).append(",EPIC,Epic").append(epicId).append(",NEW,Описание эпика,,,0\n");
+            remaining--;
+            for (int j = 0; j < SUBTASKS_PER_EPIC && remaining > 0; j++, remaining--, id++) {
+                subtasks.append(id).append(",SUBTASK,Sub").append(id).append(',')
+                        .append(Status.values()[j % Status.values().length]).append(",Описание подзадачи,")
+                        .append(epicId).append(',').append(BASE.plusHours(id)).append(",30\n");
+            }
+        }
+        builder.append(subtasks);
+        Files.writeString(file.toPath(), builder);
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import taskmanager.FileBackedTaskManager;
+
+import java.io.File;
+import java.io.IOException;
+
+// Первая загрузка снимка в свежей JVM - то, сколько сервис стартует до приёма запросов.
+// Запускается отдельно от остальных в режиме SingleShotTime без прогрева, см. BenchmarkRunner
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+    @Param({"1000", "200000", "1000000"})
+    int boardSize;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("kanban-cold", ".csv");
+        Boards.writeCsv(file, boardSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadFromFile() {
+        return FileBackedTaskManager.loadFromFile(file);
+    }
+}
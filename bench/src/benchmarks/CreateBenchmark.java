@@ -0,0 +1,52 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import taskmanager.InMemoryTaskManager;
+import taskmanager.TaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+@State(Scope.Thread)
+public class CreateBenchmark {
+    @Param({"1000", "100000"})
+    int boardSize;
+
+    private TaskManager manager;
+    private int epicId;
+    private int nextSlot;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Boards.fill(manager, boardSize);
+        epicId = manager.createEpic(new Epic("Target", "Эпик для новых подзадач")).getId();
+        nextSlot = boardSize * 2;
+    }
+
+    @Benchmark
+    public Task createTaskWithoutTime() {
+        return manager.createTask(new Task("Task", "Desc", Status.NEW));
+    }
+
+    @Benchmark
+    public Task createTaskWithTime() {
+        return manager.createTask(Boards.timed(new Task("Task", "Desc", Status.NEW), nextSlot++));
+    }
+
+    @Benchmark
+    public Subtask createSubtaskWithoutTime() {
+        return manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epicId));
+    }
+
+    @Benchmark
+    public Subtask createSubtaskWithTime() {
+        return manager.createSubtask(Boards.timed(new Subtask("Sub", "Desc", Status.NEW, epicId), nextSlot++));
+    }
+}
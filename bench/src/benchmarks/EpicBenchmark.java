@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import taskmanager.InMemoryTaskManager;
+import taskmanager.TaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+
+import java.util.List;
+
+@State(Scope.Thread)
+public class EpicBenchmark {
+    @Param({"10", "10000"})
+    int subtasksInEpic;
+
+    private TaskManager manager;
+    private Epic epic;
+    private List<Subtask> subtasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        epic = manager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < subtasksInEpic; i++) {
+            manager.createSubtask(Boards.timed(new Subtask("Sub" + i, "Desc", Status.NEW, epic.getId()), i));
+        }
+        subtasks = manager.getSubtasksByEpicId(epic.getId());
+    }
+
+    // Каждое обновление меняет статус подзадачи, что заставляет пересчитать эпик
+    @Benchmark
+    public void updateSubtaskStatus() {
+        Subtask subtask = subtasks.get(cursor++ % subtasks.size());
+        subtask.setStatus(subtask.getStatus() == Status.DONE ? Status.NEW : Status.DONE);
+        manager.updateSubtask(subtask);
+    }
+
+    // Пересчёт эпика без изменений в подзадачах: в устойчивом режиме gc.alloc.rate.norm должен быть около 0
+    @Benchmark
+    public void recalculateEpic() {
+        manager.updateEpic(epic);
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import taskmanager.FileBackedTaskManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+// Сколько кучи удерживает загруженная доска: разница занятой памяти после полной сборки мусора
+// до и после загрузки. Результат - вторичные метрики retainedMb и bytesPerItem (на одну строку снимка);
+// время загрузки здесь побочное.
+// Запускается в режиме SingleShotTime, как и ColdStartBenchmark, см. BenchmarkRunner
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+    @Param({"200000", "1000000"})
+    int boardSize;
+
+    private File file;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double retainedMb;
+        public double bytesPerItem;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("kanban-footprint", ".csv");
+        Boards.writeCsv(file, boardSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadedBoard(Footprint footprint) {
+        long before = usedAfterGc();
+        FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(file);
+        long retained = usedAfterGc() - before;
+        footprint.retainedMb = retained / (1024.0 * 1024.0);
+        footprint.bytesPerItem = (double) retained / boardSize;
+        return manager;
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import taskmanager.ConcurrentHistoryManager;
+import taskmanager.HistoryManager;
+import taskmanager.InMemoryHistoryManager;
+import tasks.Status;
+import tasks.Task;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Сравнение с InMemoryHistoryManager под общей блокировкой - единственным способом разделить его между потоками
+@State(Scope.Benchmark)
+public class HistoryContentionBenchmark {
+    private static final int DISTINCT_TASKS = 10_000;
+
+    @Param({"synchronized", "concurrent"})
+    String implementation;
+
+    private HistoryManager history;
+    private Task[] tasks;
+
+    @Setup
+    public void setUp() {
+        history = implementation.equals("concurrent")
+                ? new ConcurrentHistoryManager()
+                : new SynchronizedHistoryManager(new InMemoryHistoryManager());
+        tasks = new Task[DISTINCT_TASKS];
+        for (int i = 0; i < DISTINCT_TASKS; i++) {
+            tasks[i] = new Task("Task" + i, "Desc", Status.NEW);
+            tasks[i].setId(i + 1);
+            history.add(tasks[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void views1Thread() {
+        view();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void views4Threads() {
+        view();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void views16Threads() {
+        view();
+    }
+
+    // Как в getTaskById: в основном просмотры, изредка удаление задачи
+    private void view() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Task task = tasks[random.nextInt(DISTINCT_TASKS)];
+        if (random.nextInt(100) == 0) {
+            history.remove(task.getId());
+        } else {
+            history.add(task);
+        }
+    }
+
+    private static class SynchronizedHistoryManager implements HistoryManager {
+        private final HistoryManager delegate;
+
+        SynchronizedHistoryManager(HistoryManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void add(Task task) {
+            delegate.add(task);
+        }
+
+        @Override
+        public synchronized void remove(int id) {
+            delegate.remove(id);
+        }
+
+        @Override
+        public synchronized List<Task> getHistory() {
+            return delegate.getHistory();
+        }
+    }
+}
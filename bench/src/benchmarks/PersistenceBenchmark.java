@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import taskmanager.FileBackedTaskManager;
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int boardSize;
+
+    private File file;
+    private FileBackedTaskManager manager;
+    private Task probe;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("kanban-bench", ".csv");
+        Boards.writeCsv(file, boardSize);
+        manager = FileBackedTaskManager.loadFromFile(file);
+        probe = manager.getAllTasks().get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    // Обновление одной задачи перезаписывает весь файл, так что это и есть стоимость save()
+    @Benchmark
+    public void save() {
+        manager.updateTask(probe);
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadFromFile() {
+        return FileBackedTaskManager.loadFromFile(file);
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import taskmanager.InMemoryTaskManager;
+import taskmanager.TaskManager;
+import tasks.Task;
+
+import java.util.List;
+
+@State(Scope.Thread)
+public class QueryBenchmark {
+    @Param({"1000", "100000"})
+    int boardSize;
+
+    private TaskManager manager;
+
+    @Setup
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Boards.fill(manager, boardSize);
+        for (Task task : manager.getAllTasks()) {
+            manager.getTaskById(task.getId());
+        }
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return manager.getPrioritizedTasks();
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return manager.getHistory();
+    }
+}
@@ -0,0 +1,57 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+// Автопланирование для менеджеров без собственного прохода по индексу времени. Поиск задач,
+// проверка и запись идут внутри одной транзакции, поэтому между ними задачу никто не поменяет.
+// Хранимые объекты не меняются: в менеджер записывается копия с выбранным началом
+final class AutoScheduler {
+    private AutoScheduler() {
+    }
+
+    // lookup возвращает текущую версию задачи или подзадачи с id элемента, не трогая историю
+    static List<Task> schedule(TaskManager manager, Collection<? extends Task> items, LocalDateTime after,
+                               Function<Task, Task> lookup) {
+        TimeIntervalIndex.checkSlot(Duration.ZERO, after);
+        List<Task> placed = new ArrayList<>(items.size());
+        manager.inTransaction(tx -> {
+            List<Task> stored = new ArrayList<>(items.size());
+            Set<Integer> seen = new HashSet<>();
+            for (Task item : items) {
+                Task current = item instanceof Epic ? null : lookup.apply(item);
+                if (current == null || current.getStartTime() != null || current.getDuration() == null
+                        || !seen.add(current.getId())) {
+                    throw new IllegalArgumentException("Задачу нельзя запланировать автоматически: " + item.getId());
+                }
+                stored.add(current);
+            }
+
+            for (Task task : stored) {
+                Task copy = task instanceof Subtask subtask
+                        ? new Subtask(task.getName(), task.getDescription(), task.getStatus(), subtask.getEpicId())
+                        : new Task(task.getName(), task.getDescription(), task.getStatus());
+                copy.setId(task.getId());
+                copy.setDuration(task.getDuration());
+                copy.setStartTime(tx.findEarliestFreeSlot(task.getDuration(), after));
+                if (copy instanceof Subtask subtask) {
+                    tx.updateSubtask(subtask);
+                } else {
+                    tx.updateTask(copy);
+                }
+                placed.add(copy);
+            }
+        });
+        return placed;
+    }
+}
@@ -0,0 +1,261 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+// Двоичный снимок. Заголовок: сигнатура, версия и число задач, эпиков и подзадач (varint).
+// Затем записи в том же порядке, что и в CSV: задачи, эпики, подзадачи.
+// Запись: id (varint), статус (байт), имя и описание (длина varint + UTF-8),
+// у подзадачи id эпика, у задачи и подзадачи байт флагов, время начала и длительность в минутах.
+// С версии 2 пустые поля кодируются явно: статус - 0, иначе ordinal + 1; строка - длиной 0, иначе длина + 1.
+final class BinarySnapshot {
+    static final int MAGIC = 0x4B414E42;
+    static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_NULLS = 1;
+
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 2;
+    // Время начала с секундами или долями секунды: пишется как epoch-секунда и наносекунды
+    private static final int PRECISE_START = 4;
+
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshot() {
+    }
+
+    static void write(Path path, Collection<Task> tasks, Collection<Epic> epics,
+                      Collection<Subtask> subtasks) throws IOException {
+        try (OutputStream target = Files.newOutputStream(path)) {
+            write(target, tasks, epics, subtasks);
+        }
+    }
+
+    // Поток не закрывается: его закрывает вызывающий
+    static void write(OutputStream target, Collection<Task> tasks, Collection<Epic> epics,
+                      Collection<Subtask> subtasks) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeVarint(out, tasks.size());
+        writeVarint(out, epics.size());
+        writeVarint(out, subtasks.size());
+        for (Task task : tasks) {
+            writeCommon(out, task);
+            writeSchedule(out, task);
+        }
+        for (Epic epic : epics) {
+            writeCommon(out, epic);
+        }
+        for (Subtask subtask : subtasks) {
+            writeCommon(out, subtask);
+            writeVarint(out, subtask.getEpicId());
+            writeSchedule(out, subtask);
+        }
+        out.flush();
+    }
+
+    static Reader open(Path path) throws IOException {
+        return new Reader(new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16)));
+    }
+
+    private static void writeCommon(DataOutputStream out, Task task) throws IOException {
+        writeVarint(out, task.getId());
+        out.writeByte(task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1);
+        writeString(out, task.getName());
+        writeString(out, task.getDescription());
+    }
+
+    private static void writeSchedule(DataOutputStream out, Task task) throws IOException {
+        LocalDateTime start = task.getStartTime();
+        Duration duration = task.getDuration();
+        boolean precise = start != null && (start.getSecond() != 0 || start.getNano() != 0);
+        int flags = (start != null ? HAS_START : 0) | (duration != null ? HAS_DURATION : 0)
+                | (precise ? PRECISE_START : 0);
+        out.writeByte(flags);
+        if (precise) {
+            writeVarlong(out, zigzag(start.toEpochSecond(ZoneOffset.UTC)));
+            writeVarint(out, start.getNano());
+        } else if (start != null) {
+            writeVarlong(out, zigzag(start.toEpochSecond(ZoneOffset.UTC) / 60));
+        }
+        if (duration != null) {
+            writeVarlong(out, zigzag(duration.toMinutes()));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeVarlong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final int taskCount;
+        private final int epicCount;
+        private final int subtaskCount;
+        private final boolean nullable;
+        private int read;
+
+        private Reader(DataInputStream in) throws IOException {
+            this.in = in;
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Файл не является двоичным снимком");
+                }
+                int version = in.readUnsignedByte();
+                if (version != VERSION && version != VERSION_WITHOUT_NULLS) {
+                    throw new IOException("Неподдерживаемая версия снимка: " + version);
+                }
+                nullable = version != VERSION_WITHOUT_NULLS;
+                taskCount = readVarint();
+                epicCount = readVarint();
+                subtaskCount = readVarint();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        int taskCount() {
+            return taskCount;
+        }
+
+        int epicCount() {
+            return epicCount;
+        }
+
+        int subtaskCount() {
+            return subtaskCount;
+        }
+
+        // null, когда все записи прочитаны
+        Task next() throws IOException {
+            if (read == taskCount + epicCount + subtaskCount) return null;
+            int position = read++;
+            int id = readVarint();
+            Status status = readStatus();
+            String name = readString();
+            String description = readString();
+
+            if (position < taskCount) {
+                Task task = new Task(name, description, status);
+                task.setId(id);
+                readSchedule(task);
+                return task;
+            }
+            if (position < taskCount + epicCount) {
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                return epic;
+            }
+            Subtask subtask = new Subtask(name, description, status, readVarint());
+            subtask.setId(id);
+            readSchedule(subtask);
+            return subtask;
+        }
+
+        private void readSchedule(Task task) throws IOException {
+            int flags = in.readUnsignedByte();
+            if ((flags & PRECISE_START) != 0) {
+                long epochSecond = unzigzag(readVarlong());
+                task.setStartTime(LocalDateTime.ofEpochSecond(epochSecond, readVarint(), ZoneOffset.UTC));
+            } else if ((flags & HAS_START) != 0) {
+                long epochMinute = unzigzag(readVarlong());
+                task.setStartTime(LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC));
+            }
+            if ((flags & HAS_DURATION) != 0) {
+                task.setDuration(Duration.ofMinutes(unzigzag(readVarlong())));
+            }
+        }
+
+        private Status readStatus() throws IOException {
+            int code = in.readUnsignedByte();
+            if (!nullable) return STATUSES[code];
+            return code == 0 ? null : STATUSES[code - 1];
+        }
+
+        private String readString() throws IOException {
+            int length = readVarint();
+            if (nullable) {
+                if (length == 0) return null;
+                length--;
+            }
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) throw new EOFException("Снимок оборван");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Повреждённое число в снимке");
+        }
+
+        private long readVarlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Повреждённое число в снимке");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
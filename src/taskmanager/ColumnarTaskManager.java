@@ -0,0 +1,928 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Minutes;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+
+// Менеджер для очень больших досок: поля задач лежат в примитивных колонках, а не в объектах,
+// поэтому миллионы задач не добавляют сборщику мусора ни одной ссылки для обхода.
+// Номер строки колонок - это id: id выдаются подряд, строка удалённой задачи остаётся пустой.
+// Имена и описания хранятся в арене строк. Задачи, которые возвращает менеджер, - копии, собранные
+// из колонок: изменения в них попадают в менеджер только через update. Время хранится минутами,
+// поэтому задачу с секундами в начале или длительности менеджер не принимает.
+// Транзакция запоминает копии затронутых строк до первого изменения и при откате записывает их обратно
+public class ColumnarTaskManager implements TaskManager {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    // Коды в колонках: 0 - нет значения, иначе ordinal() + 1
+    private static final byte EMPTY = 0;
+    private static final byte TASK = code(TaskType.TASK);
+    private static final byte EPIC = code(TaskType.EPIC);
+    private static final byte SUBTASK = code(TaskType.SUBTASK);
+
+    private final HistoryManager historyManager;
+    private int taskIdCounter = 1;
+    private TransactionLog transaction;
+
+    private byte[] types;
+    private byte[] statuses;
+    private int[] epicIds;
+    private long[] startMinutes;
+    private long[] durationMinutes;
+    // Только у эпиков: конец самой поздней подзадачи
+    private long[] endMinutes;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int[] descriptionOffsets;
+    private int[] descriptionLengths;
+    // Подзадачи эпика - двусвязный список по строкам. У подзадачи здесь соседи по списку,
+    // у эпика - первая (next) и последняя (previous) подзадачи; 0 - нет
+    private int[] next;
+    private int[] previous;
+    private StringArena strings;
+
+    private final int[] typeCounts = new int[TYPES.length];
+    private final int[][] statusCounts = new int[TYPES.length][STATUSES.length];
+    // Ключ - минута начала в старших 32 битах и id в младших, так что порядок ключей и есть
+    // порядок приоритета. В intervals только задачи с длительностью; они не пересекаются
+    private final LongSortedSet prioritized = new LongSortedSet();
+    private final LongSortedSet intervals = new LongSortedSet();
+    // Промежутки перед интервалами из intervals по минуте начала, для findEarliestFreeSlot
+    private final GapTree gaps = new GapTree();
+
+    public ColumnarTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public ColumnarTaskManager(HistoryManager historyManager) {
+        this(historyManager, DEFAULT_CAPACITY);
+    }
+
+    // expectedSize - ожидаемое число задач всех типов: колонки сразу выделяются под него
+    public ColumnarTaskManager(HistoryManager historyManager, int expectedSize) {
+        this.historyManager = historyManager;
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize + 1);
+        types = new byte[capacity];
+        statuses = new byte[capacity];
+        epicIds = new int[capacity];
+        startMinutes = new long[capacity];
+        durationMinutes = new long[capacity];
+        endMinutes = new long[capacity];
+        nameOffsets = new int[capacity];
+        nameLengths = new int[capacity];
+        descriptionOffsets = new int[capacity];
+        descriptionLengths = new int[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+        strings = new StringArena(capacity * 16);
+    }
+
+    private static byte code(TaskType type) {
+        return (byte) (type.ordinal() + 1);
+    }
+
+    private byte typeCode(int id) {
+        return id > 0 && id < types.length ? types[id] : EMPTY;
+    }
+
+    private void ensureRow(int id) {
+        if (id < types.length) return;
+        int capacity = Math.max(id + 1, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        epicIds = Arrays.copyOf(epicIds, capacity);
+        startMinutes = Arrays.copyOf(startMinutes, capacity);
+        durationMinutes = Arrays.copyOf(durationMinutes, capacity);
+        endMinutes = Arrays.copyOf(endMinutes, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+    }
+
+    // Время задачи в минутах; проверяется до любых изменений, чтобы отказ ничего не оставил
+    private static long minutesOf(LocalDateTime time) {
+        if (time == null) return Minutes.NONE;
+        long minute = Minutes.of(time);
+        if (!Minutes.isWhole(time) || minute != (int) minute) {
+            throw new IllegalArgumentException("Время должно быть целым числом минут в пределах диапазона: " + time);
+        }
+        return minute;
+    }
+
+    private static long minutesOf(Duration duration) {
+        if (duration == null) return Minutes.NONE;
+        if (!Minutes.isWhole(duration)) {
+            throw new IllegalArgumentException("Длительность должна быть целым числом минут: " + duration);
+        }
+        return duration.toMinutes();
+    }
+
+    private static void checkTimes(Task task) {
+        minutesOf(task.getStartTime());
+        minutesOf(task.getDuration());
+    }
+
+    // Колонки строки id заполняются полями task; тип строки задаётся до статуса, чтобы счётчики сошлись
+    private void write(int id, byte type, Task task) {
+        ensureRow(id);
+        if (types[id] != type) {
+            types[id] = type;
+            typeCounts[type - 1]++;
+            nameLengths[id] = -1;
+            descriptionLengths[id] = -1;
+        }
+        setStatus(id, task.getStatus());
+        setText(nameOffsets, nameLengths, id, task.getName());
+        setText(descriptionOffsets, descriptionLengths, id, task.getDescription());
+        startMinutes[id] = minutesOf(task.getStartTime());
+        durationMinutes[id] = minutesOf(task.getDuration());
+        if (strings.isMostlyGarbage()) compactStrings();
+    }
+
+    private void setStatus(int id, Status status) {
+        int type = types[id] - 1;
+        if (statuses[id] != EMPTY) statusCounts[type][statuses[id] - 1]--;
+        statuses[id] = status == null ? EMPTY : (byte) (status.ordinal() + 1);
+        if (status != null) statusCounts[type][status.ordinal()]++;
+    }
+
+    // Длина -1 - строка null. Неизменённая строка остаётся на месте, чтобы обновление не засоряло арену
+    private void setText(int[] offsets, int[] lengths, int id, String value) {
+        int length = lengths[id];
+        if (value == null ? length == -1 : length >= 0 && strings.matches(offsets[id], length, value)) return;
+        if (length > 0) strings.release(length);
+        if (value == null) {
+            lengths[id] = -1;
+        } else {
+            offsets[id] = strings.add(value);
+            lengths[id] = value.length();
+        }
+    }
+
+    private String text(int[] offsets, int[] lengths, int id) {
+        return lengths[id] < 0 ? null : strings.get(offsets[id], lengths[id]);
+    }
+
+    private void compactStrings() {
+        StringArena compacted = new StringArena(strings.live());
+        for (int id = 1; id < taskIdCounter && id < types.length; id++) {
+            if (types[id] == EMPTY) continue;
+            if (nameLengths[id] > 0) nameOffsets[id] = compacted.copy(strings, nameOffsets[id], nameLengths[id]);
+            if (descriptionLengths[id] > 0) {
+                descriptionOffsets[id] = compacted.copy(strings, descriptionOffsets[id], descriptionLengths[id]);
+            }
+        }
+        strings = compacted;
+    }
+
+    private void clearRow(int id) {
+        setStatus(id, null);
+        typeCounts[types[id] - 1]--;
+        if (nameLengths[id] > 0) strings.release(nameLengths[id]);
+        if (descriptionLengths[id] > 0) strings.release(descriptionLengths[id]);
+        types[id] = EMPTY;
+        next[id] = 0;
+        previous[id] = 0;
+    }
+
+    private static long key(long startMinute, int id) {
+        return startMinute << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    private static int idOf(long key) {
+        return (int) key;
+    }
+
+    // Ключ меньше ключей всех задач, начинающихся в минуту minute или позже
+    private static long lowerBound(long minute) {
+        if (minute > Integer.MAX_VALUE) return Long.MAX_VALUE;
+        return key(Math.max(minute, Integer.MIN_VALUE), 0);
+    }
+
+    // Ключ не меньше ключей всех задач, начинающихся в минуту minute или раньше
+    private static long upperBound(long minute) {
+        if (minute < Integer.MIN_VALUE) return LongSortedSet.NONE + 1;
+        return key(Math.min(minute, Integer.MAX_VALUE), -1);
+    }
+
+    private long endOf(int id) {
+        return startMinutes[id] + durationMinutes[id];
+    }
+
+    // Как и TimeIntervalIndex: интервалы не пересекаются, поэтому достаточно проверить последний,
+    // который начинается не позже конца нового. Стык концов считается пересечением
+    private boolean overlaps(int id, long start, long duration) {
+        if (start == Minutes.NONE || duration == Minutes.NONE) return false;
+        long key = intervals.floor(upperBound(start + duration));
+        if (key != LongSortedSet.NONE && idOf(key) == id) key = intervals.lower(key);
+        return key != LongSortedSet.NONE && endOf(idOf(key)) >= start;
+    }
+
+    private boolean overlaps(int id, Task task) {
+        return overlaps(id, minutesOf(task.getStartTime()), minutesOf(task.getDuration()));
+    }
+
+    private void schedule(int id) {
+        if (startMinutes[id] == Minutes.NONE) return;
+        long key = key(startMinutes[id], id);
+        prioritized.add(key);
+        if (durationMinutes[id] != Minutes.NONE && intervals.add(key)) refreshGaps(key);
+    }
+
+    private void unschedule(int id) {
+        if (startMinutes[id] == Minutes.NONE) return;
+        long key = key(startMinutes[id], id);
+        prioritized.remove(key);
+        if (intervals.remove(key)) refreshGaps(key);
+    }
+
+    // Промежуток хранится только перед первым интервалом минуты, как в TimeIntervalIndex:
+    // меняются промежутки минуты изменённого интервала и минуты следующего за ним
+    private void refreshGaps(long key) {
+        refreshGap(startMinutes[idOf(key)]);
+        PrimitiveIterator.OfLong following = intervals.iterator(key + 1);
+        if (following.hasNext()) refreshGap(startMinutes[idOf(following.nextLong())]);
+    }
+
+    private void refreshGap(long minute) {
+        long first = firstIn(minute);
+        long previous = first == LongSortedSet.NONE ? LongSortedSet.NONE : intervals.lower(first);
+        if (previous == LongSortedSet.NONE) {
+            gaps.remove(minute);
+        } else {
+            gaps.put(minute, GapTree.gapNanos(endOf(idOf(previous)) + 1, minute, 0));
+        }
+    }
+
+    // Ключ первого интервала, начавшегося в минуту minute, или NONE
+    private long firstIn(long minute) {
+        PrimitiveIterator.OfLong keys = intervals.iterator(lowerBound(minute));
+        if (!keys.hasNext()) return LongSortedSet.NONE;
+        long key = keys.nextLong();
+        return startMinutes[idOf(key)] == minute ? key : LongSortedSet.NONE;
+    }
+
+    private void link(int epicId, int subtaskId) {
+        int tail = previous[epicId];
+        previous[subtaskId] = tail;
+        next[subtaskId] = 0;
+        if (tail == 0) {
+            next[epicId] = subtaskId;
+        } else {
+            next[tail] = subtaskId;
+        }
+        previous[epicId] = subtaskId;
+        epicIds[subtaskId] = epicId;
+    }
+
+    private void unlink(int epicId, int subtaskId) {
+        int before = previous[subtaskId];
+        int after = next[subtaskId];
+        if (before == 0) {
+            next[epicId] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == 0) {
+            previous[epicId] = before;
+        } else {
+            previous[after] = before;
+        }
+        next[subtaskId] = 0;
+        previous[subtaskId] = 0;
+    }
+
+    // Пересчёт эпика - один проход по колонкам его подзадач
+    private void recalculateEpic(int epicId) {
+        if (typeCode(epicId) != EPIC) return;
+        if (transaction != null) {
+            transaction.deferredEpics.add(epicId);
+            return;
+        }
+        int total = 0;
+        int fresh = 0;
+        int done = 0;
+        long duration = 0;
+        long start = Minutes.NONE;
+        long end = Minutes.NONE;
+        for (int id = next[epicId]; id != 0; id = next[id]) {
+            total++;
+            if (statuses[id] == Status.NEW.ordinal() + 1) fresh++;
+            if (statuses[id] == Status.DONE.ordinal() + 1) done++;
+            if (durationMinutes[id] != Minutes.NONE) duration += durationMinutes[id];
+            if (startMinutes[id] == Minutes.NONE) continue;
+            if (start == Minutes.NONE || startMinutes[id] < start) start = startMinutes[id];
+            if (durationMinutes[id] != Minutes.NONE && (end == Minutes.NONE || endOf(id) > end)) end = endOf(id);
+        }
+        Status status = total == 0 || fresh == total ? Status.NEW : done == total ? Status.DONE : Status.IN_PROGRESS;
+        setStatus(epicId, status);
+        durationMinutes[epicId] = duration;
+        startMinutes[epicId] = start;
+        endMinutes[epicId] = end;
+    }
+
+    private Task view(int id) {
+        byte type = typeCode(id);
+        if (type == TASK) return taskView(id);
+        if (type == EPIC) return epicView(id);
+        if (type == SUBTASK) return subtaskView(id);
+        return null;
+    }
+
+    private Task taskView(int id) {
+        return fill(new Task(name(id), description(id), status(id)), id);
+    }
+
+    private Epic epicView(int id) {
+        Epic epic = fill(new Epic(name(id), description(id)), id);
+        epic.setStatus(status(id));
+        epic.setEndTime(Minutes.toDateTime(endMinutes[id]));
+        for (int subtaskId = next[id]; subtaskId != 0; subtaskId = next[subtaskId]) {
+            epic.addSubtaskId(subtaskId);
+        }
+        return epic;
+    }
+
+    private Subtask subtaskView(int id) {
+        return fill(new Subtask(name(id), description(id), status(id), epicIds[id]), id);
+    }
+
+    private <T extends Task> T fill(T view, int id) {
+        view.setId(id);
+        view.setStartTime(Minutes.toDateTime(startMinutes[id]));
+        view.setDuration(Minutes.toDuration(durationMinutes[id]));
+        return view;
+    }
+
+    private String name(int id) {
+        return text(nameOffsets, nameLengths, id);
+    }
+
+    private String description(int id) {
+        return text(descriptionOffsets, descriptionLengths, id);
+    }
+
+    private Status status(int id) {
+        return statuses[id] == EMPTY ? null : STATUSES[statuses[id] - 1];
+    }
+
+    // Копии задач по ключам расписания, пока ключ меньше before
+    private Iterator<Task> views(PrimitiveIterator.OfLong keys, long before) {
+        return new Iterator<>() {
+            private long key = advance();
+
+            private long advance() {
+                if (!keys.hasNext()) return LongSortedSet.NONE;
+                long candidate = keys.nextLong();
+                return candidate < before ? candidate : LongSortedSet.NONE;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return key != LongSortedSet.NONE;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Task task = view(idOf(key));
+                key = advance();
+                return task;
+            }
+        };
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return Paging.take(views(prioritized.iterator(), Long.MAX_VALUE), prioritized.size());
+    }
+
+    // Пропущенные задачи не собираются из колонок: пропускаются только ключи
+    @Override
+    public List<Task> getPrioritizedTasks(int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        PrimitiveIterator.OfLong keys = prioritized.iterator();
+        for (int i = 0; i < offset && keys.hasNext(); i++) {
+            keys.nextLong();
+        }
+        return Paging.take(views(keys, Long.MAX_VALUE), limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(int id, int limit) {
+        Paging.checkPage(0, limit);
+        byte type = typeCode(id);
+        if ((type != TASK && type != SUBTASK) || startMinutes[id] == Minutes.NONE) return new ArrayList<>();
+        return Paging.take(views(prioritized.iterator(key(startMinutes[id], id) + 1), Long.MAX_VALUE), limit);
+    }
+
+    // Начало в минутах целое, поэтому [from, to) по началу - это минуты [ceil(from), ceil(to)).
+    // Из начавшихся раньше в интервал может попасть только одна задача, как и в InMemoryTaskManager
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        TimeIntervalIndex.checkRange(from, to);
+        if (!from.isBefore(to)) return new ArrayList<>();
+        long first = lowerBound(ceilMinute(from));
+        Task covering = null;
+        long before = intervals.lower(first);
+        if (before != LongSortedSet.NONE && endOf(idOf(before)) > Minutes.of(from)) covering = view(idOf(before));
+        return Paging.page(covering, views(prioritized.iterator(first), lowerBound(ceilMinute(to))), offset, limit);
+    }
+
+    private static long ceilMinute(LocalDateTime time) {
+        return Minutes.of(time) + (Minutes.isWhole(time) ? 0 : 1);
+    }
+
+    // Тот же поиск, что в TimeIntervalIndex: проверяется промежуток сразу после after,
+    // дальше первый подходящий промежуток после занятого интервала берётся из gaps
+    @Override
+    public LocalDateTime findEarliestFreeSlot(Duration duration, LocalDateTime after) {
+        TimeIntervalIndex.checkSlot(duration, after);
+        LocalDateTime start = after;
+        long last = intervals.floor(upperBound(Minutes.of(after)));
+        if (last != LongSortedSet.NONE && !Minutes.toDateTime(endOf(idOf(last))).isBefore(after)) {
+            start = Minutes.toDateTime(endOf(idOf(last)) + 1);
+        }
+        PrimitiveIterator.OfLong keys = intervals.iterator(last == LongSortedSet.NONE ? Long.MIN_VALUE + 1 : last + 1);
+        if (!keys.hasNext()) return start;
+        int next = idOf(keys.nextLong());
+        if (start.plus(duration).isBefore(Minutes.toDateTime(startMinutes[next]))) return start;
+        long minute = gaps.first(startMinutes[next], GapTree.nanos(duration));
+        long before = minute == GapTree.NONE ? intervals.floor(Long.MAX_VALUE) : intervals.lower(firstIn(minute));
+        return Minutes.toDateTime(endOf(idOf(before)) + 1);
+    }
+
+    @Override
+    public List<Task> autoSchedule(Collection<? extends Task> items, LocalDateTime after) {
+        return AutoScheduler.schedule(this, items, after, item -> {
+            byte type = typeCode(item.getId());
+            if (item instanceof Subtask) return type == SUBTASK ? subtaskView(item.getId()) : null;
+            return type == TASK ? taskView(item.getId()) : null;
+        });
+    }
+
+    @Override
+    public ArrayList<Task> getAllTasks() {
+        ArrayList<Task> result = new ArrayList<>(typeCounts[TASK - 1]);
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] == TASK) result.add(taskView(id));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] != TASK) continue;
+            remember(id, TaskType.TASK);
+            unschedule(id);
+            historyManager.remove(id);
+            clearRow(id);
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        if (typeCode(id) != TASK) return null;
+        Task task = taskView(id);
+        historyManager.add(task);
+        return task;
+    }
+
+    // Переданный объект в менеджере не хранится: он получает id, а поля копируются в колонки
+    @Override
+    public Task createTask(Task task) {
+        if (overlaps(0, task)) {
+            reportConflict("Ошибка: задача пересекается по времени с другой задачей");
+            return null;
+        }
+        task.setId(taskIdCounter++);
+        remember(task.getId(), TaskType.TASK);
+        write(task.getId(), TASK, task);
+        schedule(task.getId());
+        return task;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        int id = task.getId();
+        if (typeCode(id) != TASK) return;
+        if (overlaps(id, task)) {
+            reportConflict("Ошибка: обновление привело к пересечению задач");
+            return;
+        }
+        remember(id, TaskType.TASK);
+        unschedule(id);
+        write(id, TASK, task);
+        schedule(id);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        if (typeCode(id) != TASK) return;
+        remember(id, TaskType.TASK);
+        unschedule(id);
+        historyManager.remove(id);
+        clearRow(id);
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        ArrayList<Epic> result = new ArrayList<>(typeCounts[EPIC - 1]);
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] == EPIC) result.add(epicView(id));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] != EPIC && types[id] != SUBTASK) continue;
+            remember(id, types[id] == EPIC ? TaskType.EPIC : TaskType.SUBTASK);
+            unschedule(id);
+            historyManager.remove(id);
+            clearRow(id);
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        if (typeCode(id) != EPIC) return null;
+        Epic epic = epicView(id);
+        historyManager.add(epic);
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        checkTimes(epic);
+        epic.setId(taskIdCounter++);
+        remember(epic.getId(), TaskType.EPIC);
+        write(epic.getId(), EPIC, epic);
+        endMinutes[epic.getId()] = minutesOf(epic.getEndTime());
+        return epic;
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        int id = epic.getId();
+        if (typeCode(id) != EPIC) return;
+        renameEpic(id, epic);
+        recalculateEpic(id);
+    }
+
+    private void renameEpic(int id, Epic epic) {
+        remember(id, TaskType.EPIC);
+        setText(nameOffsets, nameLengths, id, epic.getName());
+        setText(descriptionOffsets, descriptionLengths, id, epic.getDescription());
+        if (strings.isMostlyGarbage()) compactStrings();
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        if (typeCode(id) != EPIC) return;
+        remember(id, TaskType.EPIC);
+        for (int subtaskId = next[id]; subtaskId != 0; ) {
+            int following = next[subtaskId];
+            remember(subtaskId, TaskType.SUBTASK);
+            unschedule(subtaskId);
+            historyManager.remove(subtaskId);
+            clearRow(subtaskId);
+            subtaskId = following;
+        }
+        historyManager.remove(id);
+        clearRow(id);
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtasks() {
+        ArrayList<Subtask> result = new ArrayList<>(typeCounts[SUBTASK - 1]);
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] == SUBTASK) result.add(subtaskView(id));
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksByEpicId(int epicId) {
+        ArrayList<Subtask> result = new ArrayList<>();
+        if (typeCode(epicId) != EPIC) return result;
+        for (int id = next[epicId]; id != 0; id = next[id]) {
+            result.add(subtaskView(id));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] != SUBTASK) continue;
+            remember(epicIds[id], TaskType.EPIC);
+            remember(id, TaskType.SUBTASK);
+            unschedule(id);
+            historyManager.remove(id);
+            clearRow(id);
+        }
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] != EPIC) continue;
+            next[id] = 0;
+            previous[id] = 0;
+            recalculateEpic(id);
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        if (typeCode(id) != SUBTASK) return null;
+        Subtask subtask = subtaskView(id);
+        historyManager.add(subtask);
+        return subtask;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        if (typeCode(subtask.getEpicId()) != EPIC) return null;
+        if (overlaps(0, subtask)) {
+            reportConflict("Ошибка: пересечение по времени с другой задачей");
+            return null;
+        }
+        addSubtask(subtask);
+        recalculateEpic(subtask.getEpicId());
+        return subtask;
+    }
+
+    private void addSubtask(Subtask subtask) {
+        remember(subtask.getEpicId(), TaskType.EPIC);
+        subtask.setId(taskIdCounter++);
+        remember(subtask.getId(), TaskType.SUBTASK);
+        write(subtask.getId(), SUBTASK, subtask);
+        link(subtask.getEpicId(), subtask.getId());
+        schedule(subtask.getId());
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        int id = subtask.getId();
+        if (typeCode(id) != SUBTASK || typeCode(subtask.getEpicId()) != EPIC) return;
+        if (overlaps(id, subtask)) {
+            reportConflict("Ошибка: пересечение при обновлении");
+            return;
+        }
+        int previousEpic = applySubtask(id, subtask);
+        if (previousEpic != subtask.getEpicId()) recalculateEpic(previousEpic);
+        recalculateEpic(subtask.getEpicId());
+    }
+
+    // Записывает подзадачу и при смене эпика переносит её в список нового; возвращает прежний эпик
+    private int applySubtask(int id, Subtask subtask) {
+        int previousEpic = epicIds[id];
+        remember(previousEpic, TaskType.EPIC);
+        remember(subtask.getEpicId(), TaskType.EPIC);
+        remember(id, TaskType.SUBTASK);
+        unschedule(id);
+        write(id, SUBTASK, subtask);
+        if (previousEpic != subtask.getEpicId()) {
+            unlink(previousEpic, id);
+            link(subtask.getEpicId(), id);
+        }
+        schedule(id);
+        return previousEpic;
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        if (typeCode(id) != SUBTASK) return;
+        int epicId = epicIds[id];
+        remember(epicId, TaskType.EPIC);
+        remember(id, TaskType.SUBTASK);
+        unschedule(id);
+        unlink(epicId, id);
+        historyManager.remove(id);
+        clearRow(id);
+        recalculateEpic(epicId);
+    }
+
+    @Override
+    public List<Task> createTasks(Collection<? extends Task> batch) {
+        batch.forEach(ColumnarTaskManager::checkTimes);
+        List<Task> created = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            if (overlaps(0, task)) {
+                rejectInTransaction("Ошибка: задача пакета пересекается по времени с другой задачей");
+                created.add(null);
+                continue;
+            }
+            task.setId(taskIdCounter++);
+            remember(task.getId(), TaskType.TASK);
+            write(task.getId(), TASK, task);
+            schedule(task.getId());
+            created.add(task);
+        }
+        InMemoryTaskManager.reportRejected(created);
+        return created;
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        batch.forEach(ColumnarTaskManager::checkTimes);
+        List<Subtask> created = new ArrayList<>(batch.size());
+        IntLinkedSet touchedEpics = new IntLinkedSet();
+        for (Subtask subtask : batch) {
+            if (typeCode(subtask.getEpicId()) != EPIC) {
+                created.add(null);
+                continue;
+            }
+            if (overlaps(0, subtask)) {
+                rejectInTransaction("Ошибка: подзадача пакета пересекается по времени с другой задачей");
+                created.add(null);
+                continue;
+            }
+            addSubtask(subtask);
+            touchedEpics.add(subtask.getEpicId());
+            created.add(subtask);
+        }
+        touchedEpics.forEach(this::recalculateEpic);
+        InMemoryTaskManager.reportRejected(created);
+        return created;
+    }
+
+    // Результаты собираются из колонок после пересчёта эпиков, поэтому отражают итоговое состояние
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> batch) {
+        batch.forEach(ColumnarTaskManager::checkTimes);
+        int[] ids = new int[batch.size()];
+        IntLinkedSet touchedEpics = new IntLinkedSet();
+        int i = 0;
+        for (Task item : batch) {
+            ids[i++] = switch (item) {
+                case Epic epic -> applyEpicUpdate(epic, touchedEpics);
+                case Subtask subtask -> applySubtaskUpdate(subtask, touchedEpics);
+                default -> applyTaskUpdate(item);
+            };
+        }
+        touchedEpics.forEach(this::recalculateEpic);
+        List<Task> updated = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            updated.add(id == 0 ? null : view(id));
+        }
+        InMemoryTaskManager.reportRejected(updated);
+        return updated;
+    }
+
+    private int applyEpicUpdate(Epic epic, IntLinkedSet touchedEpics) {
+        if (typeCode(epic.getId()) != EPIC) return 0;
+        renameEpic(epic.getId(), epic);
+        touchedEpics.add(epic.getId());
+        return epic.getId();
+    }
+
+    private int applySubtaskUpdate(Subtask subtask, IntLinkedSet touchedEpics) {
+        int id = subtask.getId();
+        if (typeCode(id) != SUBTASK || typeCode(subtask.getEpicId()) != EPIC) return 0;
+        if (overlaps(id, subtask)) {
+            rejectInTransaction("Ошибка: пересечение при обновлении в пакете");
+            return 0;
+        }
+        touchedEpics.add(applySubtask(id, subtask));
+        touchedEpics.add(subtask.getEpicId());
+        return id;
+    }
+
+    private int applyTaskUpdate(Task task) {
+        int id = task.getId();
+        if (typeCode(id) != TASK) return 0;
+        if (overlaps(id, task)) {
+            rejectInTransaction("Ошибка: пересечение при обновлении в пакете");
+            return 0;
+        }
+        remember(id, TaskType.TASK);
+        unschedule(id);
+        write(id, TASK, task);
+        schedule(id);
+        return id;
+    }
+
+    @Override
+    public void inTransaction(Consumer<TaskManager> work) {
+        if (transaction != null) {
+            work.accept(this);
+            return;
+        }
+        TransactionLog log = new TransactionLog(taskIdCounter);
+        transaction = log;
+        try {
+            work.accept(this);
+            transaction = null;
+            log.deferredEpics.forEach(this::recalculateEpic);
+        } catch (RuntimeException | Error e) {
+            transaction = null;
+            rollback(log);
+            throw e;
+        }
+    }
+
+    // Копия строки снимается один раз за транзакцию, до первого изменения; пустая строка - null
+    private void remember(int id, TaskType type) {
+        if (transaction == null || transaction.images.containsKey(id)) return;
+        transaction.remember(id, type, typeCode(id) == EMPTY ? null : view(id));
+    }
+
+    private void reportConflict(String message) {
+        if (transaction != null) throw new TaskConflictException(message);
+        System.out.println(message);
+    }
+
+    // Вне транзакции пакет пропускает пересекающийся элемент, а внутри неё пересечение откатывает всё
+    private void rejectInTransaction(String message) {
+        if (transaction != null) reportConflict(message);
+    }
+
+    // Затронутые строки очищаются и записываются из копий, затем эпикам заново собираются списки
+    // подзадач: каждый эпик, в списке которого что-то менялось, тоже есть в журнале.
+    // История просмотров не откатывается
+    private void rollback(TransactionLog log) {
+        log.images.keySet().forEach(id -> {
+            if (typeCode(id) == EMPTY) return;
+            unschedule(id);
+            clearRow(id);
+        });
+        log.images.forEach((id, image) -> {
+            if (image.ref() == null) return;
+            byte type = code(image.type());
+            write(id, type, image.ref());
+            if (type == EPIC) return;
+            if (type == SUBTASK) epicIds[id] = image.epicId();
+            schedule(id);
+        });
+        log.images.forEach((id, image) -> {
+            if (image.type() != TaskType.EPIC || image.ref() == null) return;
+            next[id] = 0;
+            previous[id] = 0;
+            for (int subtaskId : image.subtaskIds()) {
+                if (typeCode(subtaskId) == SUBTASK) link(id, subtaskId);
+            }
+            recalculateEpic(id);
+        });
+        taskIdCounter = log.idCounter;
+    }
+
+    // История хранит копии на момент просмотра, а отдаёт текущее состояние задач
+    @Override
+    public List<Task> getHistory() {
+        return current(historyManager.getHistory());
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return current(historyManager.getHistory(offset, limit));
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int id, int limit) {
+        return current(historyManager.getHistoryAfter(id, limit));
+    }
+
+    private List<Task> current(List<Task> viewed) {
+        List<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            Task current = view(task.getId());
+            if (current != null) result.add(current);
+        }
+        return result;
+    }
+
+    // Проход по двум байтовым колонкам; копии собираются только для подходящих задач
+    @Override
+    public List<Task> getByStatus(Status status, TaskType type) {
+        byte typeCode = code(type);
+        byte statusCode = (byte) (status.ordinal() + 1);
+        List<Task> result = new ArrayList<>(countByStatus(status, type));
+        for (int id = 1; id < taskIdCounter; id++) {
+            if (types[id] == typeCode && statuses[id] == statusCode) result.add(view(id));
+        }
+        return result;
+    }
+
+    @Override
+    public int countByStatus(Status status, TaskType type) {
+        return statusCounts[type.ordinal()][status.ordinal()];
+    }
+}
@@ -0,0 +1,135 @@
+package taskmanager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Просмотры дописываются в неблокирующую очередь, а индекс по id указывает на актуальную запись.
+// При повторном просмотре прежняя запись только помечается устаревшей; такие записи вычищаются
+// одним проходом, когда их становится больше, чем живых. Перенос задачи в конец выполняется
+// внутри compute, то есть под блокировкой одной корзины индекса, а не всей истории.
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int COMPACTION_SLACK = 1024;
+
+    private final ConcurrentHashMap<Integer, Entry> positions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger staleEntries = new AtomicInteger();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+
+        Entry entry = new Entry(task);
+        positions.compute(task.getId(), (id, old) -> {
+            if (old != null) markStale(old);
+            order.offer(entry);
+            return entry;
+        });
+        compactIfNeeded();
+    }
+
+    @Override
+    public void remove(int id) {
+        positions.computeIfPresent(id, (key, old) -> {
+            markStale(old);
+            return null;
+        });
+        compactIfNeeded();
+    }
+
+    // Обход очереди не блокирует писателей. Если задачу перенесли в конец прямо во время обхода,
+    // она может встретиться дважды - остаётся более позднее вхождение.
+    @Override
+    public ArrayList<Task> getHistory() {
+        Map<Integer, Task> snapshot = new LinkedHashMap<>();
+        for (Entry entry : order) {
+            if (entry.stale) continue;
+            snapshot.remove(entry.task.getId());
+            snapshot.put(entry.task.getId(), entry.task);
+        }
+        return new ArrayList<>(snapshot.values());
+    }
+
+    // Страница собирается тем же обходом, но останавливается, набрав limit просмотров.
+    // Задача, перенесённая в конец во время обхода, попадает на страницу один раз - по первому вхождению
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return Paging.page(liveTasks(), offset, limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int id, int limit) {
+        return Paging.after(liveTasks(), id, limit);
+    }
+
+    private Iterator<Task> liveTasks() {
+        Iterator<Entry> entries = order.iterator();
+        Set<Integer> seen = new HashSet<>();
+        return new Iterator<>() {
+            private Task next = advance();
+
+            private Task advance() {
+                while (entries.hasNext()) {
+                    Entry entry = entries.next();
+                    if (!entry.stale && seen.add(entry.task.getId())) return entry.task;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (next == null) throw new NoSuchElementException();
+                Task current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private void markStale(Entry entry) {
+        entry.stale = true;
+        staleEntries.incrementAndGet();
+    }
+
+    private void compactIfNeeded() {
+        if (staleEntries.get() <= positions.size() + COMPACTION_SLACK) return;
+        if (!compacting.compareAndSet(false, true)) return;
+        try {
+            int[] removed = new int[1];
+            order.removeIf(entry -> {
+                if (!entry.stale) return false;
+                removed[0]++;
+                return true;
+            });
+            staleEntries.addAndGet(-removed[0]);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private static final class Entry {
+        private final Task task;
+        private volatile boolean stale;
+
+        private Entry(Task task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,778 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Потокобезопасный менеджер: подзадачи разных эпиков меняются под блокировками своих эпиков,
+// обычные задачи - под одной из полос блокировок по id, и такие записи не мешают друг другу.
+// Общая блокировка расписания берётся только для задач со временем,
+// потому что проверка пересечения и вставка в индекс должны быть атомарны.
+// Порядок захвата всегда один: блокировка транзакций, эпик или полоса, потом расписание. Перенос
+// подзадачи в другой эпик берёт блокировки обоих эпиков по возрастанию id.
+// Изменения проходят под общей частью блокировки транзакций, а транзакция держит исключительную:
+// пока она открыта, другие потоки ничего не меняют, и её откат не затирает чужих записей.
+// Читатели её не ждут и могут увидеть ещё не зафиксированные изменения
+public class ConcurrentTaskManager implements TaskManager {
+    private final AtomicInteger taskIdCounter = new AtomicInteger(1);
+    private final ConcurrentMap<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    // Эпик, в списке которого подзадача числится сейчас: вызывающий может поменять epicId
+    // в том же объекте, что лежит в менеджере, и тогда прежний эпик по объекту уже не узнать
+    private final ConcurrentMap<Integer, Epic> subtaskEpics = new ConcurrentHashMap<>();
+    private final HistoryManager historyManager;
+    private final Object[] taskLocks = new Object[64];
+
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final ConcurrentSkipListMap<PriorityKey, Task> prioritizedTasks = new ConcurrentSkipListMap<>();
+    private final Map<Integer, PriorityKey> priorityKeys = new ConcurrentHashMap<>();
+    private final TimeIntervalIndex timeIndex = new TimeIntervalIndex();
+
+    private final ReentrantReadWriteLock transactionLock = new ReentrantReadWriteLock();
+    private final Lock writeGate = transactionLock.readLock();
+    // Меняется только под исключительной блокировкой, читается под любой из двух
+    private TransactionLog transaction;
+
+    public ConcurrentTaskManager() {
+        this(Managers.getConcurrentHistory());
+    }
+
+    // Переданный менеджер истории тоже должен быть потокобезопасным
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        for (int i = 0; i < taskLocks.length; i++) {
+            taskLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return new ArrayList<>(prioritizedTasks.values());
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(int offset, int limit) {
+        return Paging.page(prioritizedTasks.values().iterator(), offset, limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(int id, int limit) {
+        Paging.checkPage(0, limit);
+        PriorityKey cursor = priorityKeys.get(id);
+        if (cursor == null) return new ArrayList<>();
+        return Paging.take(prioritizedTasks.tailMap(cursor, false).values().iterator(), limit);
+    }
+
+    // Как и в InMemoryTaskManager: из начавшихся раньше from в интервал попадает не больше одной задачи.
+    // Её ищем под scheduleLock, остальное - обходом среза skip-list без блокировки
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        TimeIntervalIndex.checkRange(from, to);
+        if (!from.isBefore(to)) return new ArrayList<>();
+        Iterator<Task> inside = prioritizedTasks.subMap(new PriorityKey(from, Integer.MIN_VALUE), true,
+                new PriorityKey(to, Integer.MIN_VALUE), false).values().iterator();
+        int coveringId;
+        scheduleLock.lock();
+        try {
+            coveringId = timeIndex.coveringId(from);
+        } finally {
+            scheduleLock.unlock();
+        }
+        Task covering = coveringId < 0 ? null
+                : tasks.containsKey(coveringId) ? tasks.get(coveringId) : subtasks.get(coveringId);
+        return Paging.page(covering, inside, offset, limit);
+    }
+
+    @Override
+    public LocalDateTime findEarliestFreeSlot(Duration duration, LocalDateTime after) {
+        TimeIntervalIndex.checkSlot(duration, after);
+        scheduleLock.lock();
+        try {
+            return timeIndex.findFreeSlot(duration, after);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> autoSchedule(Collection<? extends Task> items, LocalDateTime after) {
+        return AutoScheduler.schedule(this, items, after,
+                item -> item instanceof Subtask ? subtasks.get(item.getId()) : tasks.get(item.getId()));
+    }
+
+    @Override
+    public ArrayList<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (Integer id : tasks.keySet()) {
+            deleteTaskById(id);
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = tasks.get(id);
+        if (task != null) historyManager.add(task);
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        writeGate.lock();
+        try {
+            if (task.getStartTime() == null) {
+                task.setId(taskIdCounter.getAndIncrement());
+                remember(task.getId(), TaskType.TASK, null);
+                tasks.put(task.getId(), task);
+                return task;
+            }
+            scheduleLock.lock();
+            try {
+                if (hasIntersection(task)) {
+                    reportConflict("Ошибка: задача пересекается по времени с другой задачей");
+                    return null;
+                }
+                task.setId(taskIdCounter.getAndIncrement());
+                remember(task.getId(), TaskType.TASK, null);
+                tasks.put(task.getId(), task);
+                schedule(task);
+                return task;
+            } finally {
+                scheduleLock.unlock();
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        writeGate.lock();
+        try {
+            if (replaceTask(task) == Replacement.CONFLICT) {
+                reportConflict("Ошибка: обновление привело к пересечению задач");
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    private Replacement replaceTask(Task task) {
+        synchronized (lockFor(task.getId())) {
+            Task previous = tasks.get(task.getId());
+            if (previous == null) return Replacement.MISSING;
+            remember(task.getId(), TaskType.TASK, previous);
+            if (!tryReschedule(task)) return Replacement.CONFLICT;
+            tasks.put(task.getId(), task);
+            return Replacement.DONE;
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        writeGate.lock();
+        try {
+            synchronized (lockFor(id)) {
+                Task task = tasks.remove(id);
+                if (task != null) {
+                    remember(id, TaskType.TASK, task);
+                    unschedule(id);
+                    historyManager.remove(id);
+                }
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        ArrayList<Epic> result = new ArrayList<>(epics.size());
+        for (Epic epic : epics.values()) {
+            result.add(copyOf(epic));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        for (Integer id : epics.keySet()) {
+            deleteEpicById(id);
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = epics.get(id);
+        if (epic == null) return null;
+        Epic copy = copyOf(epic);
+        historyManager.add(copy);
+        return copy;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        writeGate.lock();
+        try {
+            epic.setId(taskIdCounter.getAndIncrement());
+            remember(epic.getId(), TaskType.EPIC, null);
+            epics.put(epic.getId(), epic);
+            return epic;
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        writeGate.lock();
+        try {
+            Epic stored = epics.get(epic.getId());
+            if (stored == null) return;
+            synchronized (stored) {
+                remember(stored.getId(), TaskType.EPIC, stored);
+                stored.setName(epic.getName());
+                stored.setDescription(epic.getDescription());
+                updateEpicStatus(stored);
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        writeGate.lock();
+        try {
+            Epic epic = epics.get(id);
+            if (epic == null) return;
+            synchronized (epic) {
+                if (!epics.remove(id, epic)) return;
+                remember(id, TaskType.EPIC, epic);
+                historyManager.remove(id);
+                epic.forEachSubtaskId(subId -> {
+                    subtaskEpics.remove(subId);
+                    Subtask subtask = subtasks.remove(subId);
+                    if (subtask != null) {
+                        remember(subId, TaskType.SUBTASK, subtask);
+                        unschedule(subId);
+                        historyManager.remove(subId);
+                    }
+                });
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksByEpicId(int epicId) {
+        Epic epic = epics.get(epicId);
+        ArrayList<Subtask> result = new ArrayList<>();
+        if (epic == null) return result;
+        synchronized (epic) {
+            epic.forEachSubtaskId(subId -> {
+                Subtask subtask = subtasks.get(subId);
+                if (subtask != null) result.add(subtask);
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        writeGate.lock();
+        try {
+            for (Epic epic : epics.values()) {
+                synchronized (epic) {
+                    remember(epic.getId(), TaskType.EPIC, epic);
+                    epic.forEachSubtaskId(subId -> {
+                        subtaskEpics.remove(subId);
+                        Subtask subtask = subtasks.remove(subId);
+                        if (subtask != null) {
+                            remember(subId, TaskType.SUBTASK, subtask);
+                            unschedule(subId);
+                            historyManager.remove(subId);
+                        }
+                    });
+                    epic.clearSubtaskIds();
+                    updateEpicStatus(epic);
+                }
+            }
+            for (Integer id : subtasks.keySet()) {
+                deleteSubtaskById(id);
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        Subtask sub = subtasks.get(id);
+        if (sub != null) historyManager.add(sub);
+        return sub;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        writeGate.lock();
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) return null;
+            synchronized (epic) {
+                if (epics.get(subtask.getEpicId()) != epic) return null;
+                if (subtask.getStartTime() == null) {
+                    subtask.setId(taskIdCounter.getAndIncrement());
+                } else {
+                    scheduleLock.lock();
+                    try {
+                        if (hasIntersection(subtask)) {
+                            reportConflict("Ошибка: пересечение по времени с другой задачей");
+                            return null;
+                        }
+                        subtask.setId(taskIdCounter.getAndIncrement());
+                        schedule(subtask);
+                    } finally {
+                        scheduleLock.unlock();
+                    }
+                }
+                remember(epic.getId(), TaskType.EPIC, epic);
+                remember(subtask.getId(), TaskType.SUBTASK, null);
+                subtasks.put(subtask.getId(), subtask);
+                subtaskEpics.put(subtask.getId(), epic);
+                epic.addSubtaskId(subtask.getId());
+                epic.trackSubtask(subtask);
+                updateEpicStatus(epic);
+                return subtask;
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        writeGate.lock();
+        try {
+            if (replaceSubtask(subtask) == Replacement.CONFLICT) {
+                reportConflict("Ошибка: пересечение при обновлении");
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    // Если, пока ждали блокировку, подзадачу перенесли в другой эпик, попытка повторяется
+    private Replacement replaceSubtask(Subtask subtask) {
+        while (true) {
+            Epic epic = epics.get(subtask.getEpicId());
+            Epic from = subtaskEpics.get(subtask.getId());
+            if (epic == null || from == null) return Replacement.MISSING;
+            Epic first = from.getId() <= epic.getId() ? from : epic;
+            Epic second = first == from ? epic : from;
+            synchronized (first) {
+                synchronized (second) {
+                    if (subtaskEpics.get(subtask.getId()) != from) continue;
+                    if (epics.get(epic.getId()) != epic) return Replacement.MISSING;
+                    remember(from.getId(), TaskType.EPIC, from);
+                    remember(epic.getId(), TaskType.EPIC, epic);
+                    remember(subtask.getId(), TaskType.SUBTASK, subtasks.get(subtask.getId()));
+                    if (!tryReschedule(subtask)) return Replacement.CONFLICT;
+                    subtasks.put(subtask.getId(), subtask);
+                    if (from != epic) {
+                        from.removeSubtaskId(subtask.getId());
+                        updateEpicStatus(from);
+                        epic.addSubtaskId(subtask.getId());
+                        subtaskEpics.put(subtask.getId(), epic);
+                    }
+                    epic.trackSubtask(subtask);
+                    updateEpicStatus(epic);
+                    return Replacement.DONE;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        writeGate.lock();
+        try {
+            while (true) {
+                Epic epic = subtaskEpics.get(id);
+                if (epic == null) return;
+                synchronized (epic) {
+                    if (subtaskEpics.get(id) != epic) continue;
+                    remember(epic.getId(), TaskType.EPIC, epic);
+                    subtaskEpics.remove(id);
+                    Subtask subtask = subtasks.remove(id);
+                    if (subtask == null) return;
+                    remember(id, TaskType.SUBTASK, subtask);
+                    unschedule(id);
+                    historyManager.remove(id);
+                    epic.removeSubtaskId(id);
+                    updateEpicStatus(epic);
+                    return;
+                }
+            }
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> createTasks(Collection<? extends Task> batch) {
+        writeGate.lock();
+        try {
+            List<Task> created = new ArrayList<>(batch.size());
+            for (Task task : batch) {
+                created.add(createTask(task));
+            }
+            return created;
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    // Подзадачи группируются по эпикам: блокировка эпика берётся и эпик пересчитывается по разу на группу
+    @Override
+    public List<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        writeGate.lock();
+        try {
+            List<Subtask> items = new ArrayList<>(batch);
+            Subtask[] created = new Subtask[items.size()];
+            for (Map.Entry<Integer, List<Integer>> group : groupByEpic(items).entrySet()) {
+                Epic epic = epics.get(group.getKey());
+                if (epic == null) continue;
+                synchronized (epic) {
+                    if (epics.get(group.getKey()) != epic) continue;
+                    scheduleLock.lock();
+                    try {
+                        for (int position : group.getValue()) {
+                            Subtask subtask = items.get(position);
+                            if (hasIntersection(subtask)) {
+                                rejectInTransaction("Ошибка: подзадача пакета пересекается по времени с другой задачей");
+                                continue;
+                            }
+                            subtask.setId(taskIdCounter.getAndIncrement());
+                            remember(epic.getId(), TaskType.EPIC, epic);
+                            remember(subtask.getId(), TaskType.SUBTASK, null);
+                            schedule(subtask);
+                            subtasks.put(subtask.getId(), subtask);
+                            subtaskEpics.put(subtask.getId(), epic);
+                            epic.addSubtaskId(subtask.getId());
+                            epic.trackSubtask(subtask);
+                            created[position] = subtask;
+                        }
+                    } finally {
+                        scheduleLock.unlock();
+                    }
+                    updateEpicStatus(epic);
+                }
+            }
+            return Arrays.asList(created);
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> batch) {
+        writeGate.lock();
+        try {
+            List<Task> items = new ArrayList<>(batch);
+            Task[] updated = new Task[items.size()];
+            List<Subtask> subtaskItems = new ArrayList<>();
+            List<Integer> subtaskPositions = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                Task item = items.get(i);
+                if (item instanceof Subtask subtask) {
+                    subtaskItems.add(subtask);
+                    subtaskPositions.add(i);
+                } else if (item instanceof Epic epic) {
+                    updateEpic(epic);
+                    updated[i] = epics.get(epic.getId());
+                } else {
+                    Replacement result = replaceTask(item);
+                    if (result == Replacement.CONFLICT) rejectInTransaction("Ошибка: пересечение при обновлении в пакете");
+                    if (result == Replacement.DONE) updated[i] = item;
+                }
+            }
+
+            // Подзадачи, переносимые в другой эпик, обновляются по одной: им нужны блокировки двух эпиков
+            List<Integer> moved = new ArrayList<>();
+            for (Map.Entry<Integer, List<Integer>> group : groupByEpic(subtaskItems).entrySet()) {
+                Epic epic = epics.get(group.getKey());
+                if (epic == null) continue;
+                synchronized (epic) {
+                    if (epics.get(group.getKey()) != epic) continue;
+                    for (int index : group.getValue()) {
+                        Subtask subtask = subtaskItems.get(index);
+                        if (!subtasks.containsKey(subtask.getId())) continue;
+                        if (subtaskEpics.get(subtask.getId()) != epic) {
+                            moved.add(index);
+                            continue;
+                        }
+                        remember(epic.getId(), TaskType.EPIC, epic);
+                        remember(subtask.getId(), TaskType.SUBTASK, subtasks.get(subtask.getId()));
+                        if (!tryReschedule(subtask)) {
+                            rejectInTransaction("Ошибка: пересечение при обновлении в пакете");
+                            continue;
+                        }
+                        subtasks.put(subtask.getId(), subtask);
+                        epic.trackSubtask(subtask);
+                        updated[subtaskPositions.get(index)] = subtask;
+                    }
+                    updateEpicStatus(epic);
+                }
+            }
+            for (int index : moved) {
+                Subtask subtask = subtaskItems.get(index);
+                Replacement result = replaceSubtask(subtask);
+                if (result == Replacement.CONFLICT) rejectInTransaction("Ошибка: пересечение при обновлении в пакете");
+                if (result == Replacement.DONE) updated[subtaskPositions.get(index)] = subtask;
+            }
+            return Arrays.asList(updated);
+        } finally {
+            writeGate.unlock();
+        }
+    }
+
+    // id эпика -> позиции его подзадач в списке, в исходном порядке
+    private static Map<Integer, List<Integer>> groupByEpic(List<? extends Subtask> items) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            groups.computeIfAbsent(items.get(i).getEpicId(), id -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    // Вложенный вызов выполняется в транзакции, которая уже открыта. Эпики пересчитываются сразу:
+    // у этого менеджера пересчёт не обходит подзадачи, и откладывать его незачем
+    @Override
+    public void inTransaction(Consumer<TaskManager> work) {
+        if (transactionLock.isWriteLockedByCurrentThread()) {
+            work.accept(this);
+            return;
+        }
+        Lock exclusive = transactionLock.writeLock();
+        exclusive.lock();
+        try {
+            TransactionLog log = new TransactionLog(taskIdCounter.get());
+            transaction = log;
+            try {
+                work.accept(this);
+                transaction = null;
+            } catch (RuntimeException | Error e) {
+                transaction = null;
+                rollback(log);
+                throw e;
+            }
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private void remember(int id, TaskType type, Task current) {
+        if (transaction != null) transaction.remember(id, type, current);
+    }
+
+    private void reportConflict(String message) {
+        if (transaction != null) throw new TaskConflictException(message);
+        System.out.println(message);
+    }
+
+    // Вне транзакции пакет пропускает пересекающийся элемент, а внутри неё пересечение откатывает всё
+    private void rejectInTransaction(String message) {
+        if (transaction != null) reportConflict(message);
+    }
+
+    // Вызывается под исключительной блокировкой, поэтому другие записи в это время не идут.
+    // Прежние объекты возвращаются в коллекции и расписание, затем эпикам восстанавливаются
+    // списки подзадач. История просмотров не откатывается
+    private void rollback(TransactionLog log) {
+        for (Map.Entry<Integer, TransactionLog.Image> entry : log.images.entrySet()) {
+            int id = entry.getKey();
+            switch (entry.getValue().type()) {
+                case TASK -> tasks.remove(id);
+                case SUBTASK -> {
+                    subtasks.remove(id);
+                    subtaskEpics.remove(id);
+                }
+                case EPIC -> epics.remove(id);
+            }
+            unschedule(id);
+        }
+        for (Map.Entry<Integer, TransactionLog.Image> entry : log.images.entrySet()) {
+            TransactionLog.Image image = entry.getValue();
+            if (image.ref() == null) continue;
+            switch (image.ref()) {
+                case Epic epic -> {
+                    synchronized (epic) {
+                        image.restoreFields();
+                    }
+                    epics.put(entry.getKey(), epic);
+                }
+                case Subtask subtask -> {
+                    image.restoreFields();
+                    subtasks.put(entry.getKey(), subtask);
+                }
+                default -> {
+                    image.restoreFields();
+                    tasks.put(entry.getKey(), image.ref());
+                }
+            }
+        }
+        scheduleLock.lock();
+        try {
+            for (TransactionLog.Image image : log.images.values()) {
+                if (image.ref() != null && !(image.ref() instanceof Epic)) schedule(image.ref());
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+        for (TransactionLog.Image image : log.images.values()) {
+            if (!(image.ref() instanceof Epic epic)) continue;
+            synchronized (epic) {
+                epic.clearSubtaskIds();
+                for (Integer subId : image.subtaskIds()) {
+                    Subtask subtask = subtasks.get(subId);
+                    if (subtask == null) continue;
+                    epic.addSubtaskId(subId);
+                    epic.trackSubtask(subtask);
+                    subtaskEpics.put(subId, epic);
+                }
+                updateEpicStatus(epic);
+            }
+        }
+        taskIdCounter.set(log.idCounter);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return historyManager.getHistory(offset, limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int id, int limit) {
+        return historyManager.getHistoryAfter(id, limit);
+    }
+
+    // Статус, время и список подзадач эпика меняются под его блокировкой, поэтому наружу отдаётся
+    // снятая под ней же копия: иначе читатель мог бы увидеть статус от одного набора подзадач,
+    // а время от другого
+    private static Epic copyOf(Epic epic) {
+        synchronized (epic) {
+            Epic copy = new Epic(epic.getName(), epic.getDescription());
+            copy.setId(epic.getId());
+            copy.setStatus(epic.getStatus());
+            copy.setStartTime(epic.getStartTime());
+            copy.setDuration(epic.getDuration());
+            copy.setEndTime(epic.getEndTime());
+            epic.forEachSubtaskId(copy::addSubtaskId);
+            return copy;
+        }
+    }
+
+    private void updateEpicStatus(Epic epic) {
+        epic.applySubtaskTotals();
+    }
+
+    private Object lockFor(int id) {
+        return taskLocks[id & (taskLocks.length - 1)];
+    }
+
+    // Вызывается под блокировкой эпика или полосы задачи. Задаче без времени, которой не было
+    // в расписании, общая блокировка не нужна
+    private boolean tryReschedule(Task task) {
+        if (task.getStartTime() == null && !priorityKeys.containsKey(task.getId())) return true;
+        scheduleLock.lock();
+        try {
+            if (hasIntersection(task)) return false;
+            schedule(task);
+            return true;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Вызывается под scheduleLock
+    private boolean hasIntersection(Task task) {
+        if (task.getStartTime() == null || task.getEndTime() == null) return false;
+        return timeIndex.overlaps(task.getId(), task.getStartTime(), task.getEndTime());
+    }
+
+    // Вызывается под scheduleLock; заменяет прежний слот задачи с тем же id
+    private void schedule(Task task) {
+        PriorityKey old = priorityKeys.remove(task.getId());
+        if (old != null) prioritizedTasks.remove(old);
+        timeIndex.remove(task.getId());
+        if (task.getStartTime() == null) return;
+
+        PriorityKey key = new PriorityKey(task.getStartTime(), task.getId());
+        priorityKeys.put(task.getId(), key);
+        prioritizedTasks.put(key, task);
+        if (task.getEndTime() != null) {
+            timeIndex.add(task.getId(), task.getStartTime(), task.getEndTime());
+        }
+    }
+
+    private void unschedule(int id) {
+        if (!priorityKeys.containsKey(id)) return;
+        scheduleLock.lock();
+        try {
+            PriorityKey key = priorityKeys.remove(id);
+            if (key != null) prioritizedTasks.remove(key);
+            timeIndex.remove(id);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private enum Replacement {
+        DONE,
+        MISSING,
+        CONFLICT
+    }
+
+    private record PriorityKey(LocalDateTime startTime, int id) implements Comparable<PriorityKey> {
+        @Override
+        public int compareTo(PriorityKey other) {
+            int cmp = startTime.compareTo(other.startTime);
+            return cmp != 0 ? cmp : Integer.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package taskmanager;
+
+import tasks.Task;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Параллельный разбор CSV-снимка: файл режется на куски по границам строк, каждый кусок читается
+// позиционным чтением канала в свой буфер в куче и разбирается отдельной задачей пула.
+// Файл не отображается в память: отображение держало бы его до сборки мусора, и на Windows
+// следующий save() не смог бы перезаписать снимок. Куски возвращаются в порядке файла.
+final class CsvChunkLoader {
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int PROBE_SIZE = 8 * 1024;
+
+    private CsvChunkLoader() {
+    }
+
+    static List<List<Task>> parse(Path path, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снимок слишком велик для параллельной загрузки: " + size);
+            }
+            long start = nextLine(channel, 0, size);
+
+            int chunks = (int) Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD,
+                    (size - start) / MIN_CHUNK_SIZE));
+            List<ForkJoinTask<List<Task>>> parts = new ArrayList<>(chunks);
+            long from = start;
+            for (int i = 1; i <= chunks && from < size; i++) {
+                long to = i == chunks ? size : nextLine(channel, start + (size - start) * i / chunks, size);
+                if (to <= from) continue;
+                long chunkFrom = from;
+                parts.add(pool.submit(() -> parseChunk(channel, chunkFrom, to)));
+                from = to;
+            }
+
+            List<List<Task>> result = new ArrayList<>(parts.size());
+            for (ForkJoinTask<List<Task>> part : parts) {
+                try {
+                    result.add(part.join());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            return result;
+        }
+    }
+
+    // Позиция сразу после ближайшего перевода строки, начиная с from
+    private static long nextLine(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static List<Task> parseChunk(FileChannel channel, long from, long to) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) throw new EOFException("Снимок оборван");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String text = new String(buffer.array(), StandardCharsets.UTF_8);
+        List<Task> tasks = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = text.length();
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                tasks.add(CsvTaskParser.parse(text.substring(lineStart, contentEnd)));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,112 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Разбор строки CSV без split: поля читаются по границам запятых прямо из строки,
+// числа и перечисления - без промежуточных подстрок. Подстроки создаются только для имени и описания.
+final class CsvTaskParser {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private CsvTaskParser() {
+    }
+
+    static Task parse(String line) {
+        int idEnd = fieldEnd(line, 0);
+        int typeEnd = fieldEnd(line, idEnd + 1);
+        int nameEnd = fieldEnd(line, typeEnd + 1);
+        int statusEnd = fieldEnd(line, nameEnd + 1);
+        int descEnd = fieldEnd(line, statusEnd + 1);
+        int epicEnd = fieldEnd(line, descEnd + 1);
+        int startEnd = fieldEnd(line, epicEnd + 1);
+        int durationEnd = line.indexOf(',', startEnd + 1);
+        if (durationEnd < 0) durationEnd = line.length();
+
+        int id = Integer.parseInt(line, 0, idEnd, 10);
+        TaskType type = parseEnum(TYPES, line, idEnd + 1, typeEnd);
+        String name = line.substring(typeEnd + 1, nameEnd);
+        Status status = parseEnum(STATUSES, line, nameEnd + 1, statusEnd);
+        String desc = line.substring(statusEnd + 1, descEnd);
+        LocalDateTime startTime = startEnd == epicEnd + 1 ? null : parseDateTime(line, epicEnd + 1, startEnd);
+        Duration duration = durationEnd == startEnd + 1 ? null
+                : Duration.ofMinutes(Long.parseLong(line, startEnd + 1, durationEnd, 10));
+
+        return switch (type) {
+            case TASK -> {
+                Task task = new Task(name, desc, status);
+                task.setId(id);
+                task.setStartTime(startTime);
+                task.setDuration(duration);
+                yield task;
+            }
+            case EPIC -> {
+                Epic epic = new Epic(name, desc);
+                epic.setId(id);
+                epic.setStatus(status);
+                yield epic;
+            }
+            case SUBTASK -> {
+                int epicId = Integer.parseInt(line, descEnd + 1, epicEnd, 10);
+                Subtask sub = new Subtask(name, desc, status, epicId);
+                sub.setId(id);
+                sub.setStartTime(startTime);
+                sub.setDuration(duration);
+                yield sub;
+            }
+        };
+    }
+
+    // Быстрый путь для формата LocalDateTime.toString: yyyy-MM-ddTHH:mm и yyyy-MM-ddTHH:mm:ss,
+    // всё остальное (например, с долями секунды) разбирается стандартным парсером
+    static LocalDateTime parseDateTime(String line, int from, int to) {
+        int length = to - from;
+        if ((length == 16 || length == 19)
+                && line.charAt(from + 4) == '-' && line.charAt(from + 7) == '-'
+                && line.charAt(from + 10) == 'T' && line.charAt(from + 13) == ':'
+                && (length == 16 || line.charAt(from + 16) == ':')) {
+            int year = digits(line, from, 4);
+            int month = digits(line, from + 5, 2);
+            int day = digits(line, from + 8, 2);
+            int hour = digits(line, from + 11, 2);
+            int minute = digits(line, from + 14, 2);
+            int second = length == 19 ? digits(line, from + 17, 2) : 0;
+            if ((year | month | day | hour | minute | second) >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+        return LocalDateTime.parse(line.substring(from, to));
+    }
+
+    // -1, если среди символов есть не цифра
+    private static int digits(String line, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int fieldEnd(String line, int from) {
+        int comma = line.indexOf(',', from);
+        if (comma < 0) {
+            throw new IllegalArgumentException("Недостаточно полей в строке: " + line);
+        }
+        return comma;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(E[] values, String line, int from, int to) {
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() == to - from && line.startsWith(name, from)) return value;
+        }
+        throw new IllegalArgumentException("Неизвестное значение: " + line.substring(from, to));
+    }
+}
@@ -1,54 +1,197 @@
 package taskmanager;
 
 import tasks.Epic;
-import tasks.Status;
 import tasks.Subtask;
 import tasks.Task;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
-    private final File file;
+    static final long PARALLEL_LOAD_THRESHOLD = 4 * 1024 * 1024;
+    static final String HEADER = "id,type,name,status,description,epic,startTime,duration\n";
+
+    protected final File file;
+    protected final SnapshotFormat format;
+    // Пока идёт загрузка снимка, задачи со временем копятся здесь и попадают в расписание разом
+    private List<Task> loadedPrioritized;
+    // Одинаковые описания из снимка хранятся одним экземпляром строки; живёт только во время загрузки
+    private Map<String, String> loadedDescriptions;
 
     public FileBackedTaskManager(File file) {
+        this(file, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format) {
         this.file = file;
+        this.format = format;
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        return loadFromFile(file, SnapshotFormat.CSV);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, SnapshotFormat format) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, format);
         manager.load();
         return manager;
     }
 
-    private void load() {
+    // Параллельная загрузка CSV-снимка в заданном пуле независимо от размера файла
+    public static FileBackedTaskManager loadFromFile(File file, ForkJoinPool pool) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        manager.loadCsv(pool);
+        return manager;
+    }
+
+    // Перекладывает снимок из одного формата в другой
+    public static void convert(File source, SnapshotFormat sourceFormat, File target, SnapshotFormat targetFormat) {
+        FileBackedTaskManager manager = loadFromFile(source, sourceFormat);
+        try {
+            manager.writeSnapshot(target, targetFormat);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+    }
+
+    protected void load() {
+        switch (format) {
+            case CSV -> loadCsv();
+            case BINARY -> loadBinary();
+        }
+    }
+
+    // Большой снимок на многоядерной машине разбирается параллельно в общем пуле
+    private void loadCsv() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (file.length() >= PARALLEL_LOAD_THRESHOLD && pool.getParallelism() > 1) {
+            loadCsv(pool);
+            return;
+        }
+        List<Task> loaded = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (reader.readLine() == null) return;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                loaded.add(fromString(line));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+        restoreAll(List.of(loaded));
+    }
+
+    private void loadCsv(ForkJoinPool pool) {
         try {
-            String content = Files.readString(file.toPath());
-            if (content.isEmpty()) return;
-
-            String[] lines = content.split("\n");
-            for (int i = 1; i < lines.length; i++) {
-                Task task = fromString(lines[i]);
-                if (task == null) continue;
-
-                if (task instanceof Epic epic) {
-                    epics.put(epic.getId(), epic);
-                } else if (task instanceof Subtask subtask) {
-                    subtasks.put(subtask.getId(), subtask);
-                    Epic epic = epics.get(subtask.getEpicId());
-                    if (epic != null) epic.addSubtaskId(subtask.getId());
-                    addPrioritized(subtask);
-                } else {
-                    tasks.put(task.getId(), task);
-                    addPrioritized(task);
+            restoreAll(CsvChunkLoader.parse(file.toPath(), pool));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+    }
+
+    // Сначала регистрируются все эпики, поэтому подзадача находит свой эпик,
+    // даже если в файле она стоит раньше него. Остальное восстанавливается в порядке файла
+    void restoreAll(List<List<Task>> chunks) {
+        int epicCount = 0;
+        int subtaskCount = 0;
+        int total = 0;
+        for (List<Task> chunk : chunks) {
+            for (Task task : chunk) {
+                if (task instanceof Epic) epicCount++;
+                else if (task instanceof Subtask) subtaskCount++;
+            }
+            total += chunk.size();
+        }
+        reserve(total - epicCount - subtaskCount, epicCount, subtaskCount);
+        loadedPrioritized = new ArrayList<>(total - epicCount);
+        loadedDescriptions = new HashMap<>();
+        try {
+            for (List<Task> chunk : chunks) {
+                for (Task task : chunk) {
+                    if (task instanceof Epic) restore(task);
+                }
+            }
+            for (List<Task> chunk : chunks) {
+                for (Task task : chunk) {
+                    if (!(task instanceof Epic)) restore(task);
                 }
-                updateTaskIdCounter(task.getId());
             }
+            addAllPrioritized(loadedPrioritized);
+        } finally {
+            loadedPrioritized = null;
+            loadedDescriptions = null;
+        }
+    }
+
+    private void loadBinary() {
+        if (file.length() == 0) return;
+        try (BinarySnapshot.Reader reader = BinarySnapshot.open(file.toPath())) {
+            reserve(reader.taskCount(), reader.epicCount(), reader.subtaskCount());
+            loadedPrioritized = new ArrayList<>(reader.taskCount() + reader.subtaskCount());
+            loadedDescriptions = new HashMap<>();
+            Task task;
+            while ((task = reader.next()) != null) {
+                restore(task);
+            }
+            addAllPrioritized(loadedPrioritized);
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        } finally {
+            loadedPrioritized = null;
+            loadedDescriptions = null;
+        }
+    }
+
+    // Коллекции выделяются сразу под весь снимок, без промежуточных расширений
+    private void reserve(int taskCount, int epicCount, int subtaskCount) {
+        tasks.ensureCapacity(tasks.size() + taskCount);
+        epics.ensureCapacity(epics.size() + epicCount);
+        subtasks.ensureCapacity(subtasks.size() + subtaskCount);
+    }
+
+    protected void restore(Task task) {
+        if (loadedDescriptions != null && task.getDescription() != null) {
+            String shared = loadedDescriptions.putIfAbsent(task.getDescription(), task.getDescription());
+            if (shared != null) task.setDescription(shared);
+        }
+        if (task instanceof Epic epic) {
+            epics.put(epic.getId(), epic);
+        } else if (task instanceof Subtask subtask) {
+            subtasks.put(subtask.getId(), subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtaskId(subtask.getId());
+                epic.trackSubtask(subtask);
+            }
+            schedule(subtask);
+            updateEpicStatus(subtask.getEpicId());
+        } else {
+            tasks.put(task.getId(), task);
+            schedule(task);
+        }
+        index(task);
+        updateTaskIdCounter(task.getId());
+    }
+
+    private void schedule(Task task) {
+        if (loadedPrioritized != null) {
+            loadedPrioritized.add(task);
+        } else {
+            addPrioritized(task);
         }
     }
 
@@ -60,21 +203,83 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     protected void save() {
         try {
-            StringBuilder builder = new StringBuilder("id,type,name,status,description,epic,startTime,duration\n");
-            appendTasksToBuilder(builder);
-            Files.writeString(file.toPath(), builder.toString());
+            writeSnapshot(file, format);
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения в файл", e);
         }
     }
 
-    private void appendTasksToBuilder(StringBuilder builder) {
-        getAllTasks().forEach(t -> builder.append(toString(t)).append("\n"));
-        getAllEpics().forEach(e -> builder.append(toString(e)).append("\n"));
-        getAllSubtasks().forEach(s -> builder.append(toString(s)).append("\n"));
+    private void writeSnapshot(File target, SnapshotFormat targetFormat) throws IOException {
+        writeSnapshot(target.toPath(), targetFormat, tasks.values(), epics.values(), subtasks.values());
+    }
+
+    static void writeSnapshot(Path target, SnapshotFormat targetFormat, Collection<Task> taskList,
+                              Collection<Epic> epicList, Collection<Subtask> subtaskList) throws IOException {
+        switch (targetFormat) {
+            case CSV -> Files.writeString(target, snapshot(taskList, epicList, subtaskList));
+            case BINARY -> BinarySnapshot.write(target, taskList, epicList, subtaskList);
+        }
+    }
+
+    // Снимок целиком в памяти: его можно снять под блокировкой, а записать на диск уже без неё
+    static byte[] renderSnapshot(SnapshotFormat targetFormat, Collection<Task> taskList,
+                                 Collection<Epic> epicList, Collection<Subtask> subtaskList) {
+        return switch (targetFormat) {
+            case CSV -> snapshot(taskList, epicList, subtaskList).getBytes(StandardCharsets.UTF_8);
+            case BINARY -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try {
+                    BinarySnapshot.write(out, taskList, epicList, subtaskList);
+                } catch (IOException e) {
+                    // ByteArrayOutputStream не бросает IOException
+                    throw new UncheckedIOException(e);
+                }
+                yield out.toByteArray();
+            }
+        };
+    }
+
+    protected String snapshot() {
+        return snapshot(tasks.values(), epics.values(), subtasks.values());
+    }
+
+    static String snapshot(Collection<Task> taskList, Collection<Epic> epicList, Collection<Subtask> subtaskList) {
+        return snapshot(HEADER, taskList, epicList, subtaskList);
+    }
+
+    static String snapshot(String header, Collection<Task> taskList, Collection<Epic> epicList,
+                           Collection<Subtask> subtaskList) {
+        StringBuilder builder = new StringBuilder(header);
+        taskList.forEach(t -> builder.append(toString(t)).append("\n"));
+        epicList.forEach(e -> builder.append(toString(e)).append("\n"));
+        subtaskList.forEach(s -> builder.append(toString(s)).append("\n"));
+        return builder.toString();
+    }
+
+    protected void persistChange(Task task) {
+        save();
     }
 
-    private static String toString(Task task) {
+    protected void persistRemoval(Task task) {
+        save();
+    }
+
+    protected void persistClear(TaskType type) {
+        save();
+    }
+
+    // Внутри транзакции хуки не вызываются: всё сохраняется один раз при фиксации
+    @Override
+    protected void afterCommit(List<Task> changed, List<Task> removed) {
+        if (!changed.isEmpty() || !removed.isEmpty()) save();
+    }
+
+    // Пакет сохраняется одним вызовом; в changed только принятые элементы
+    protected void persistBatch(List<? extends Task> changed) {
+        save();
+    }
+
+    static String toString(Task task) {
         String startTime = task.getStartTimeString();
         String duration = task.getDurationMinutesString();
 
@@ -94,115 +299,118 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         };
     }
 
-    private static Task fromString(String line) {
-        String[] parts = line.split(",", -1);
-        int id = Integer.parseInt(parts[0]);
-        TaskType type = TaskType.valueOf(parts[1]);
-        String name = parts[2];
-        Status status = Status.valueOf(parts[3]);
-        String desc = parts[4];
-        String startStr = parts[6];
-        String durationStr = parts[7];
-        LocalDateTime startTime = startStr.isEmpty() ? null : LocalDateTime.parse(startStr);
-        Duration duration = durationStr.isEmpty() ? null : Duration.ofMinutes(Long.parseLong(durationStr));
-        return switch (type) {
-            case TASK -> {
-                Task task = new Task(name, desc, status);
-                task.setId(id);
-                task.setStartTime(startTime);
-                task.setDuration(duration);
-                yield task;
-            }
-            case EPIC -> {
-                Epic epic = new Epic(name, desc);
-                epic.setId(id);
-                epic.setStatus(status);
-                yield epic;
-            }
-            case SUBTASK -> {
-                int epicId = Integer.parseInt(parts[5]);
-                Subtask sub = new Subtask(name, desc, status, epicId);
-                sub.setId(id);
-                sub.setStartTime(startTime);
-                sub.setDuration(duration);
-                yield sub;
-            }
-        };
+    static Task fromString(String line) {
+        return CsvTaskParser.parse(line);
     }
 
     // Все override-методы create/update/delete сохраняют автоматически
     @Override
     public Task createTask(Task task) {
         Task result = super.createTask(task);
-        save();
+        if (result != null && !isInTransaction()) persistChange(result);
         return result;
     }
 
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        Task stored = tasks.get(task.getId());
+        if (stored != null && !isInTransaction()) persistChange(stored);
     }
 
     @Override
     public void deleteTaskById(int id) {
+        Task task = tasks.get(id);
         super.deleteTaskById(id);
-        save();
+        if (task != null && !isInTransaction()) persistRemoval(task);
     }
 
     @Override
     public void deleteAllTasks() {
         super.deleteAllTasks();
-        save();
+        if (!isInTransaction()) persistClear(TaskType.TASK);
     }
 
     @Override
     public Epic createEpic(Epic epic) {
         Epic result = super.createEpic(epic);
-        save();
+        if (!isInTransaction()) persistChange(result);
         return result;
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        Epic stored = epics.get(epic.getId());
+        if (stored != null && !isInTransaction()) persistChange(stored);
     }
 
     @Override
     public void deleteEpicById(int id) {
+        Epic epic = epics.get(id);
         super.deleteEpicById(id);
-        save();
+        if (epic != null && !isInTransaction()) persistRemoval(epic);
     }
 
     @Override
     public void deleteAllEpics() {
         super.deleteAllEpics();
-        save();
+        if (!isInTransaction()) persistClear(TaskType.EPIC);
     }
 
     @Override
     public Subtask createSubtask(Subtask subtask) {
         Subtask result = super.createSubtask(subtask);
-        save();
+        if (result != null && !isInTransaction()) persistChange(result);
         return result;
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        Subtask stored = subtasks.get(subtask.getId());
+        if (stored != null && !isInTransaction()) persistChange(stored);
     }
 
     @Override
     public void deleteSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
         super.deleteSubtaskById(id);
-        save();
+        if (subtask != null && !isInTransaction()) persistRemoval(subtask);
     }
 
     @Override
     public void deleteAllSubtasks() {
         super.deleteAllSubtasks();
-        save();
+        if (!isInTransaction()) persistClear(TaskType.SUBTASK);
+    }
+
+    @Override
+    public List<Task> createTasks(Collection<? extends Task> batch) {
+        List<Task> created = super.createTasks(batch);
+        persistAccepted(created);
+        return created;
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        List<Subtask> created = super.createSubtasks(batch);
+        persistAccepted(created);
+        return created;
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> batch) {
+        List<Task> updated = super.updateAll(batch);
+        persistAccepted(updated);
+        return updated;
+    }
+
+    private void persistAccepted(List<? extends Task> results) {
+        List<Task> accepted = new ArrayList<>(results.size());
+        for (Task task : results) {
+            if (task != null) accepted.add(task);
+        }
+        if (!accepted.isEmpty() && !isInTransaction()) persistBatch(accepted);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,182 @@
+package taskmanager;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Свободные промежутки расписания: ключ - минута начала занятого интервала, значение - длина
+// промежутка перед ним в наносекундах. Декартово дерево по ключу на массивах, в каждом узле
+// хранится наибольший промежуток поддерева, поэтому первый промежуток длиннее заданного
+// после данного ключа находится за O(log n), без обхода занятых интервалов.
+// Хранятся только положительные промежутки
+final class GapTree {
+    static final long NONE = Long.MIN_VALUE;
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+    private static final int NIL = 0;
+
+    private long[] keys = new long[16];
+    private long[] gaps = new long[16];
+    private long[] maxGaps = new long[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] priorities = new int[16];
+    private int root = NIL;
+    private int allocated = 1;
+    private int free = NIL;
+    private int size;
+    private int seed = 0x2545F491;
+
+    GapTree() {
+        maxGaps[NIL] = Long.MIN_VALUE;
+    }
+
+    // Длина промежутка от начала минуты freeMinute до момента minute:nanos, с насыщением
+    static long gapNanos(long freeMinute, long minute, long nanos) {
+        long minutes = minute - freeMinute;
+        if (minutes < 0) return -1;
+        if (minutes >= (Long.MAX_VALUE - nanos) / NANOS_PER_MINUTE) return Long.MAX_VALUE;
+        return minutes * NANOS_PER_MINUTE + nanos;
+    }
+
+    static long nanos(Duration duration) {
+        return duration.getSeconds() >= Long.MAX_VALUE / 1_000_000_000L ? Long.MAX_VALUE : duration.toNanos();
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Промежуток перед key; неположительный удаляет запись
+    void put(long key, long gap) {
+        remove(key);
+        if (gap <= 0) return;
+        int node = allocate(key, gap);
+        root = insert(root, node);
+        size++;
+    }
+
+    void remove(long key) {
+        root = remove(root, key);
+    }
+
+    void clear() {
+        root = NIL;
+        allocated = 1;
+        free = NIL;
+        size = 0;
+    }
+
+    // Наименьший ключ больше after с промежутком длиннее longerThan, или NONE
+    long first(long after, long longerThan) {
+        return first(root, after, longerThan);
+    }
+
+    private long first(int node, long after, long longerThan) {
+        if (node == NIL || maxGaps[node] <= longerThan) return NONE;
+        if (keys[node] <= after) return first(right[node], after, longerThan);
+        long found = first(left[node], after, longerThan);
+        if (found != NONE) return found;
+        if (gaps[node] > longerThan) return keys[node];
+        return first(right[node], after, longerThan);
+    }
+
+    private int insert(int node, int created) {
+        if (node == NIL) return created;
+        if (keys[created] < keys[node]) {
+            left[node] = insert(left[node], created);
+            if (priorities[left[node]] > priorities[node]) node = rotateRight(node);
+        } else {
+            right[node] = insert(right[node], created);
+            if (priorities[right[node]] > priorities[node]) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private int remove(int node, long key) {
+        if (node == NIL) return NIL;
+        if (key < keys[node]) {
+            left[node] = remove(left[node], key);
+        } else if (key > keys[node]) {
+            right[node] = remove(right[node], key);
+        } else {
+            int merged = merge(left[node], right[node]);
+            release(node);
+            return merged;
+        }
+        update(node);
+        return node;
+    }
+
+    // Все ключи a меньше ключей b
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priorities[a] > priorities[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(int node) {
+        maxGaps[node] = Math.max(gaps[node], Math.max(maxGaps[left[node]], maxGaps[right[node]]));
+    }
+
+    private int allocate(long key, long gap) {
+        int node = free;
+        if (node != NIL) {
+            free = left[node];
+        } else {
+            if (allocated == keys.length) grow();
+            node = allocated++;
+        }
+        keys[node] = key;
+        gaps[node] = gap;
+        maxGaps[node] = gap;
+        left[node] = NIL;
+        right[node] = NIL;
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        priorities[node] = seed;
+        return node;
+    }
+
+    // Освободившиеся узлы связаны через left
+    private void release(int node) {
+        left[node] = free;
+        free = node;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        gaps = Arrays.copyOf(gaps, capacity);
+        maxGaps = Arrays.copyOf(maxGaps, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+    }
+}
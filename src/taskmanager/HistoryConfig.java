@@ -0,0 +1,23 @@
+package taskmanager;
+
+import java.time.Duration;
+
+// maxSize - сколько последних просмотров хранить, ttl - через сколько просмотр забывается (null - никогда)
+public record HistoryConfig(int maxSize, Duration ttl) {
+    public HistoryConfig {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + maxSize);
+        }
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("Время жизни просмотра должно быть положительным: " + ttl);
+        }
+    }
+
+    public static HistoryConfig unbounded() {
+        return new HistoryConfig(Integer.MAX_VALUE, null);
+    }
+
+    public static HistoryConfig ofMaxSize(int maxSize) {
+        return new HistoryConfig(maxSize, null);
+    }
+}
@@ -10,4 +10,14 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    // Страница истории: не больше limit просмотров, начиная с позиции offset
+    default List<Task> getHistory(int offset, int limit) {
+        return Paging.page(getHistory().iterator(), offset, limit);
+    }
+
+    // Страница истории сразу после просмотра задачи с данным id
+    default List<Task> getHistoryAfter(int id, int limit) {
+        return Paging.after(getHistory().iterator(), id, limit);
+    }
 }
\ No newline at end of file
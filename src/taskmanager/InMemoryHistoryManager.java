@@ -2,21 +2,43 @@ package taskmanager;
 
 import tasks.Task;
 
+import java.time.Clock;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final IntHashMap<Node> historyMap = new IntHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private long evictionCount;
     private Node head;
     private Node tail;
 
+    public InMemoryHistoryManager() {
+        this(HistoryConfig.unbounded());
+    }
+
+    public InMemoryHistoryManager(HistoryConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    public InMemoryHistoryManager(HistoryConfig config, Clock clock) {
+        this.maxSize = config.maxSize();
+        this.ttlMillis = config.ttl() == null ? Long.MAX_VALUE : config.ttl().toMillis();
+        this.clock = clock;
+    }
+
     @Override
     public void add(Task task) {
         if (task == null) return;
 
         remove(task.getId());
         linkLast(task);
+        evictExpired();
+        while (historyMap.size() > maxSize) {
+            evict(head);
+        }
     }
 
     @Override
@@ -29,6 +51,7 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     @Override
     public ArrayList<Task> getHistory() {
+        evictExpired();
         ArrayList<Task> tasks = new ArrayList<>();
         Node current = head;
         while (current != null) {
@@ -38,8 +61,60 @@ public class InMemoryHistoryManager implements HistoryManager {
         return tasks;
     }
 
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        evictExpired();
+        Node current = head;
+        for (int i = 0; i < offset && current != null; i++) {
+            current = current.next;
+        }
+        return collect(current, limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int id, int limit) {
+        Paging.checkPage(0, limit);
+        evictExpired();
+        Node cursor = historyMap.get(id);
+        return cursor == null ? new ArrayList<>() : collect(cursor.next, limit);
+    }
+
+    private List<Task> collect(Node from, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(limit, 64));
+        for (Node current = from; current != null && page.size() < limit; current = current.next) {
+            page.add(current.task);
+        }
+        return page;
+    }
+
+    public int size() {
+        evictExpired();
+        return historyMap.size();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    // Просмотры упорядочены по времени, поэтому устаревшие всегда в начале списка
+    private void evictExpired() {
+        if (ttlMillis == Long.MAX_VALUE) return;
+        long now = clock.millis();
+        while (head != null && now - head.viewedAt >= ttlMillis) {
+            evict(head);
+        }
+    }
+
+    private void evict(Node node) {
+        historyMap.remove(node.task.getId());
+        removeNode(node);
+        evictionCount++;
+    }
+
     private void linkLast(Task task) {
         Node newNode = new Node(task);
+        newNode.viewedAt = clock.millis();
         if (tail == null) {
             head = newNode;
         } else {
@@ -2,40 +2,165 @@ package taskmanager;
 
 import tasks.*;
 
-import java.util.*;
-import java.util.stream.Collectors;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class InMemoryTaskManager implements TaskManager {
     protected int taskIdCounter = 1;
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected final HistoryManager historyManager = Managers.getDefaultHistory();
-    protected final Set<Task> prioritizedTasks = new TreeSet<>();
+    protected final IntHashMap<Task> tasks = new IntHashMap<>();
+    protected final IntHashMap<Epic> epics = new IntHashMap<>();
+    protected final IntHashMap<Subtask> subtasks = new IntHashMap<>();
+    protected final HistoryManager historyManager;
+    protected final NavigableSet<Task> prioritizedTasks = new TreeSet<>();
+    private final TimeIntervalIndex timeIndex = new TimeIntervalIndex();
+    private final StatusIndex statusIndex = new StatusIndex();
+    // Строится при первом поиске и дальше поддерживается при каждом изменении:
+    // менеджеру, в котором не ищут, не приходится платить за индекс при загрузке
+    private TextIndex textIndex;
+    private TransactionLog transaction;
+
+    public InMemoryTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
 
     @Override
     public List<Task> getPrioritizedTasks() {
         return new ArrayList<>(prioritizedTasks);
     }
 
+    @Override
+    public List<Task> getPrioritizedTasks(int offset, int limit) {
+        return Paging.page(prioritizedTasks.iterator(), offset, limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(int id, int limit) {
+        Paging.checkPage(0, limit);
+        Task cursor = tasks.containsKey(id) ? tasks.get(id) : subtasks.get(id);
+        if (cursor == null || !prioritizedTasks.contains(cursor)) return new ArrayList<>();
+        return Paging.take(prioritizedTasks.tailSet(cursor, false).iterator(), limit);
+    }
+
+    // Задачи в расписании не пересекаются, поэтому из начавшихся раньше from в интервал может попасть
+    // только одна - её находит индекс интервалов. Остальные берутся из подмножества по началу,
+    // так что выборка стоит O(log n + k) и идёт лениво
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        TimeIntervalIndex.checkRange(from, to);
+        if (!from.isBefore(to)) return new ArrayList<>();
+        Iterator<Task> inside = prioritizedTasks.subSet(probe(from), true, probe(to), false).iterator();
+        int coveringId = timeIndex.coveringId(from);
+        Task covering = coveringId < 0 ? null
+                : tasks.containsKey(coveringId) ? tasks.get(coveringId) : subtasks.get(coveringId);
+        return Paging.page(covering, inside, offset, limit);
+    }
+
+    // Граница для выборки из prioritizedTasks: раньше любой настоящей задачи с тем же началом
+    private static Task probe(LocalDateTime time) {
+        Task probe = new Task(null, null, null);
+        probe.setStartTime(time);
+        probe.setId(Integer.MIN_VALUE);
+        return probe;
+    }
+
+    @Override
+    public LocalDateTime findEarliestFreeSlot(Duration duration, LocalDateTime after) {
+        TimeIntervalIndex.checkSlot(duration, after);
+        return timeIndex.findFreeSlot(duration, after);
+    }
+
+    // Каждая задача ищет место в индексе, где уже стоят расставленные до неё, поэтому задачи
+    // не пересекаются между собой, а промежуток, в который не поместилась одна, может занять следующая
+    @Override
+    public List<Task> autoSchedule(Collection<? extends Task> items, LocalDateTime after) {
+        TimeIntervalIndex.checkSlot(Duration.ZERO, after);
+        List<Task> stored = new ArrayList<>(items.size());
+        Set<Integer> seen = new HashSet<>();
+        for (Task item : items) {
+            Task current = switch (item) {
+                case Epic epic -> null;
+                case Subtask subtask -> subtasks.get(subtask.getId());
+                default -> tasks.get(item.getId());
+            };
+            if (current == null || current.getStartTime() != null || current.getDuration() == null
+                    || !seen.add(current.getId())) {
+                throw new IllegalArgumentException("Задачу нельзя запланировать автоматически: " + item.getId());
+            }
+            stored.add(current);
+        }
+
+        inTransaction(tx -> {
+            for (Task task : stored) {
+                LocalDateTime start = timeIndex.findFreeSlot(task.getDuration(), after);
+                remember(task.getId(), task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK, task);
+                task.setStartTime(start);
+                if (task instanceof Subtask subtask) {
+                    tx.updateSubtask(subtask);
+                } else {
+                    tx.updateTask(task);
+                }
+            }
+        });
+        return stored;
+    }
+
     private boolean hasIntersection(Task newTask) {
         if (newTask.getStartTime() == null || newTask.getEndTime() == null) return false;
-        return prioritizedTasks.stream()
-                .filter(t -> t.getStartTime() != null && t.getEndTime() != null)
-                .anyMatch(existing -> existing.getId() != newTask.getId() &&
-                        !(newTask.getEndTime().isBefore(existing.getStartTime()) ||
-                                newTask.getStartTime().isAfter(existing.getEndTime())));
+        return timeIndex.overlaps(newTask.getId(), newTask.getStartTime(), newTask.getEndTime());
     }
 
     void addPrioritized(Task task) {
         if (task.getStartTime() != null && !hasIntersection(task)) {
             prioritizedTasks.add(task);
+            if (task.getEndTime() != null) {
+                timeIndex.add(task.getId(), task.getStartTime(), task.getEndTime());
+            }
+        }
+    }
+
+    // Массовая вставка при загрузке: одна сортировка и один проход по возрастанию начала.
+    // Если при проходе нашлось пересечение, задачи добавляются по одной в исходном порядке,
+    // чтобы отброшены были те же задачи, что и при обычной вставке
+    void addAllPrioritized(List<Task> items) {
+        if (!prioritizedTasks.isEmpty()) {
+            items.forEach(this::addPrioritized);
+            return;
+        }
+        List<Task> sorted = new ArrayList<>(items.size());
+        for (Task task : items) {
+            if (task.getStartTime() != null) sorted.add(task);
+        }
+        sorted.sort(null);
+
+        LocalDateTime latestEnd = null;
+        for (Task task : sorted) {
+            LocalDateTime end = task.getEndTime();
+            if (end == null) continue;
+            if (latestEnd != null && !latestEnd.isBefore(task.getStartTime())) {
+                items.forEach(this::addPrioritized);
+                return;
+            }
+            if (latestEnd == null || end.isAfter(latestEnd)) latestEnd = end;
+        }
+
+        for (Task task : sorted) {
+            prioritizedTasks.add(task);
+            if (task.getEndTime() != null) {
+                timeIndex.add(task.getId(), task.getStartTime(), task.getEndTime());
+            }
         }
     }
 
     private void removePrioritized(Task task) {
+        if (task == null) return;
         prioritizedTasks.remove(task);
+        timeIndex.remove(task.getId());
     }
 
     @Override
@@ -45,8 +170,10 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllTasks() {
+        tasks.values().forEach(task -> remember(task.getId(), TaskType.TASK, task));
         tasks.values().forEach(this::removePrioritized);
-        tasks.keySet().forEach(historyManager::remove);
+        tasks.forEachKey(historyManager::remove);
+        clearIndexes(TaskType.TASK, tasks);
         tasks.clear();
     }
 
@@ -60,11 +187,13 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public Task createTask(Task task) {
         if (hasIntersection(task)) {
-            System.out.println("Ошибка: задача пересекается по времени с другой задачей");
+            reportConflict("Ошибка: задача пересекается по времени с другой задачей");
             return null;
         }
         task.setId(taskIdCounter++);
+        remember(task.getId(), TaskType.TASK, null);
         tasks.put(task.getId(), task);
+        index(task);
         addPrioritized(task);
         return task;
     }
@@ -72,19 +201,23 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void updateTask(Task task) {
         if (!tasks.containsKey(task.getId())) return;
+        remember(task.getId(), TaskType.TASK, tasks.get(task.getId()));
         removePrioritized(tasks.get(task.getId()));
         if (hasIntersection(task)) {
-            System.out.println("Ошибка: обновление привело к пересечению задач");
+            reportConflict("Ошибка: обновление привело к пересечению задач");
             return;
         }
         tasks.put(task.getId(), task);
+        index(task);
         addPrioritized(task);
     }
 
     @Override
     public void deleteTaskById(int id) {
+        remember(id, TaskType.TASK, tasks.get(id));
         Task task = tasks.remove(id);
         if (task != null) {
+            unindex(TaskType.TASK, id);
             removePrioritized(task);
             historyManager.remove(id);
         }
@@ -97,9 +230,13 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllEpics() {
-        epics.keySet().forEach(historyManager::remove);
-        subtasks.keySet().forEach(historyManager::remove);
+        epics.values().forEach(epic -> remember(epic.getId(), TaskType.EPIC, epic));
+        subtasks.values().forEach(subtask -> remember(subtask.getId(), TaskType.SUBTASK, subtask));
+        epics.forEachKey(historyManager::remove);
+        subtasks.forEachKey(historyManager::remove);
         subtasks.values().forEach(this::removePrioritized);
+        clearIndexes(TaskType.EPIC, epics);
+        clearIndexes(TaskType.SUBTASK, subtasks);
         epics.clear();
         subtasks.clear();
     }
@@ -114,7 +251,9 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public Epic createEpic(Epic epic) {
         epic.setId(taskIdCounter++);
+        remember(epic.getId(), TaskType.EPIC, null);
         epics.put(epic.getId(), epic);
+        index(epic);
         return epic;
     }
 
@@ -122,8 +261,10 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateEpic(Epic epic) {
         if (!epics.containsKey(epic.getId())) return;
         Epic oldEpic = epics.get(epic.getId());
+        remember(oldEpic.getId(), TaskType.EPIC, oldEpic);
         oldEpic.setName(epic.getName());
         oldEpic.setDescription(epic.getDescription());
+        if (textIndex != null) textIndex.put(oldEpic);
         updateEpicStatus(epic.getId());
     }
 
@@ -131,11 +272,15 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpicById(int id) {
         Epic epic = epics.remove(id);
         if (epic != null) {
+            remember(id, TaskType.EPIC, epic);
+            unindex(TaskType.EPIC, id);
             historyManager.remove(id);
-            for (Integer subId : epic.getSubtaskIds()) {
+            epic.forEachSubtaskId(subId -> {
+                remember(subId, TaskType.SUBTASK, subtasks.get(subId));
+                unindex(TaskType.SUBTASK, subId);
                 historyManager.remove(subId);
                 removePrioritized(subtasks.remove(subId));
-            }
+            });
         }
     }
 
@@ -147,20 +292,26 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public ArrayList<Subtask> getSubtasksByEpicId(int epicId) {
         Epic epic = epics.get(epicId);
-        return epic == null ? new ArrayList<>() :
-                epic.getSubtaskIds().stream()
-                        .map(subtasks::get)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toCollection(ArrayList::new));
+        ArrayList<Subtask> result = new ArrayList<>();
+        if (epic == null) return result;
+        result.ensureCapacity(epic.getSubtaskCount());
+        epic.forEachSubtaskId(subId -> {
+            Subtask subtask = subtasks.get(subId);
+            if (subtask != null) result.add(subtask);
+        });
+        return result;
     }
 
     @Override
     public void deleteAllSubtasks() {
+        subtasks.values().forEach(subtask -> remember(subtask.getId(), TaskType.SUBTASK, subtask));
+        epics.values().forEach(epic -> remember(epic.getId(), TaskType.EPIC, epic));
         subtasks.values().forEach(this::removePrioritized);
-        subtasks.keySet().forEach(historyManager::remove);
+        subtasks.forEachKey(historyManager::remove);
+        clearIndexes(TaskType.SUBTASK, subtasks);
         subtasks.clear();
         for (Epic epic : epics.values()) {
-            epic.getSubtaskIds().clear();
+            epic.clearSubtaskIds();
             updateEpicStatus(epic.getId());
         }
     }
@@ -176,12 +327,17 @@ public class InMemoryTaskManager implements TaskManager {
     public Subtask createSubtask(Subtask subtask) {
         if (!epics.containsKey(subtask.getEpicId())) return null;
         if (hasIntersection(subtask)) {
-            System.out.println("Ошибка: пересечение по времени с другой задачей");
+            reportConflict("Ошибка: пересечение по времени с другой задачей");
             return null;
         }
         subtask.setId(taskIdCounter++);
+        Epic epic = epics.get(subtask.getEpicId());
+        remember(epic.getId(), TaskType.EPIC, epic);
+        remember(subtask.getId(), TaskType.SUBTASK, null);
         subtasks.put(subtask.getId(), subtask);
-        epics.get(subtask.getEpicId()).addSubtaskId(subtask.getId());
+        index(subtask);
+        epic.addSubtaskId(subtask.getId());
+        epic.trackSubtask(subtask);
         addPrioritized(subtask);
         updateEpicStatus(subtask.getEpicId());
         return subtask;
@@ -191,20 +347,58 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateSubtask(Subtask subtask) {
         if (!subtasks.containsKey(subtask.getId())) return;
         if (!epics.containsKey(subtask.getEpicId())) return;
-        removePrioritized(subtasks.get(subtask.getId()));
+        remember(subtask.getEpicId(), TaskType.EPIC, epics.get(subtask.getEpicId()));
+        Subtask previous = subtasks.get(subtask.getId());
+        remember(subtask.getId(), TaskType.SUBTASK, previous);
+        removePrioritized(previous);
         if (hasIntersection(subtask)) {
-            System.out.println("Ошибка: пересечение при обновлении");
+            reportConflict("Ошибка: пересечение при обновлении");
             return;
         }
         subtasks.put(subtask.getId(), subtask);
+        index(subtask);
         addPrioritized(subtask);
-        updateEpicStatus(subtask.getEpicId());
+        Epic epic = epics.get(subtask.getEpicId());
+        Epic from = linkSubtask(previous, subtask, epic);
+        if (from != null) updateEpicStatus(from.getId());
+        updateEpicStatus(epic.getId());
+    }
+
+    // Привязывает обновлённую подзадачу к эпику из её epicId и возвращает прежний эпик, если она
+    // числилась в другом. epicId могли поменять в том же объекте, что лежит в менеджере, поэтому
+    // прежний эпик тогда ищется по спискам подзадач - перенос редок, обычное обновление его не ищет
+    private Epic linkSubtask(Subtask previous, Subtask subtask, Epic epic) {
+        int id = subtask.getId();
+        if (epic.hasSubtaskId(id)) {
+            epic.trackSubtask(subtask);
+            return null;
+        }
+        Epic from = previous != subtask ? epics.get(previous.getEpicId()) : null;
+        if (from == null || !from.hasSubtaskId(id)) {
+            from = null;
+            for (Epic candidate : epics.values()) {
+                if (candidate.hasSubtaskId(id)) {
+                    from = candidate;
+                    break;
+                }
+            }
+        }
+        if (from != null) {
+            remember(from.getId(), TaskType.EPIC, from);
+            from.removeSubtaskId(id);
+        }
+        epic.addSubtaskId(id);
+        epic.trackSubtask(subtask);
+        return from;
     }
 
     @Override
     public void deleteSubtaskById(int id) {
         Subtask subtask = subtasks.remove(id);
         if (subtask != null) {
+            remember(id, TaskType.SUBTASK, subtask);
+            remember(subtask.getEpicId(), TaskType.EPIC, epics.get(subtask.getEpicId()));
+            unindex(TaskType.SUBTASK, id);
             removePrioritized(subtask);
             historyManager.remove(id);
             Epic epic = epics.get(subtask.getEpicId());
@@ -215,30 +409,293 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    @Override
+    public List<Task> createTasks(Collection<? extends Task> batch) {
+        List<Task> created = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            if (hasIntersection(task)) {
+                rejectInTransaction("Ошибка: задача пакета пересекается по времени с другой задачей");
+                created.add(null);
+                continue;
+            }
+            task.setId(taskIdCounter++);
+            remember(task.getId(), TaskType.TASK, null);
+            tasks.put(task.getId(), task);
+            index(task);
+            addPrioritized(task);
+            created.add(task);
+        }
+        reportRejected(created);
+        return created;
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        List<Subtask> created = new ArrayList<>(batch.size());
+        Set<Integer> touchedEpics = new LinkedHashSet<>();
+        for (Subtask subtask : batch) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                created.add(null);
+                continue;
+            }
+            if (hasIntersection(subtask)) {
+                rejectInTransaction("Ошибка: подзадача пакета пересекается по времени с другой задачей");
+                created.add(null);
+                continue;
+            }
+            subtask.setId(taskIdCounter++);
+            remember(epic.getId(), TaskType.EPIC, epic);
+            remember(subtask.getId(), TaskType.SUBTASK, null);
+            subtasks.put(subtask.getId(), subtask);
+            index(subtask);
+            epic.addSubtaskId(subtask.getId());
+            epic.trackSubtask(subtask);
+            addPrioritized(subtask);
+            touchedEpics.add(epic.getId());
+            created.add(subtask);
+        }
+        touchedEpics.forEach(this::updateEpicStatus);
+        reportRejected(created);
+        return created;
+    }
+
+    @Override
+    public List<Task> updateAll(Collection<? extends Task> batch) {
+        List<Task> updated = new ArrayList<>(batch.size());
+        Set<Integer> touchedEpics = new LinkedHashSet<>();
+        for (Task item : batch) {
+            updated.add(switch (item) {
+                case Epic epic -> applyEpicUpdate(epic, touchedEpics);
+                case Subtask subtask -> applyScheduledUpdate(subtask, subtasks, touchedEpics);
+                default -> applyScheduledUpdate(item, tasks, touchedEpics);
+            });
+        }
+        touchedEpics.forEach(this::updateEpicStatus);
+        reportRejected(updated);
+        return updated;
+    }
+
+    private Epic applyEpicUpdate(Epic epic, Set<Integer> touchedEpics) {
+        Epic stored = epics.get(epic.getId());
+        if (stored == null) return null;
+        remember(stored.getId(), TaskType.EPIC, stored);
+        stored.setName(epic.getName());
+        stored.setDescription(epic.getDescription());
+        if (textIndex != null) textIndex.put(stored);
+        touchedEpics.add(stored.getId());
+        return stored;
+    }
+
+    // В отличие от одиночного обновления, при пересечении прежний слот задачи возвращается в расписание
+    private <T extends Task> T applyScheduledUpdate(T item, Map<Integer, T> storage, Set<Integer> touchedEpics) {
+        T previous = storage.get(item.getId());
+        if (previous == null) return null;
+        Epic epic = null;
+        if (item instanceof Subtask subtask) {
+            epic = epics.get(subtask.getEpicId());
+            if (epic == null) return null;
+            remember(epic.getId(), TaskType.EPIC, epic);
+        }
+        remember(item.getId(), epic == null ? TaskType.TASK : TaskType.SUBTASK, previous);
+        removePrioritized(previous);
+        if (hasIntersection(item)) {
+            addPrioritized(previous);
+            rejectInTransaction("Ошибка: пересечение при обновлении в пакете");
+            return null;
+        }
+        storage.put(item.getId(), item);
+        index(item);
+        addPrioritized(item);
+        if (epic != null) {
+            Epic from = linkSubtask((Subtask) previous, (Subtask) item, epic);
+            if (from != null) touchedEpics.add(from.getId());
+            touchedEpics.add(epic.getId());
+        }
+        return item;
+    }
+
+    // Вне транзакции пакет пропускает пересекающийся элемент, а внутри неё пересечение,
+    // как и у одиночной операции, откатывает всю транзакцию
+    private void rejectInTransaction(String message) {
+        if (isInTransaction()) reportConflict(message);
+    }
+
+    static void reportRejected(List<? extends Task> results) {
+        long rejected = results.stream().filter(Objects::isNull).count();
+        if (rejected > 0) {
+            System.out.println("Ошибка: отклонено элементов пакета - " + rejected);
+        }
+    }
+
     @Override
     public List<Task> getHistory() {
         return historyManager.getHistory();
     }
 
-    private void updateEpicStatus(int epicId) {
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return historyManager.getHistory(offset, limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int id, int limit) {
+        return historyManager.getHistoryAfter(id, limit);
+    }
+
+    @Override
+    public List<Task> getByStatus(Status status, TaskType type) {
+        return statusIndex.get(status, type);
+    }
+
+    @Override
+    public int countByStatus(Status status, TaskType type) {
+        return statusIndex.count(status, type);
+    }
+
+    @Override
+    public List<Integer> search(String query, int limit) {
+        if (textIndex == null) {
+            textIndex = new TextIndex();
+            tasks.values().forEach(textIndex::put);
+            epics.values().forEach(textIndex::put);
+            subtasks.values().forEach(textIndex::put);
+        }
+        return textIndex.search(query, limit);
+    }
+
+    // Для восстановления из файла: задача кладётся в коллекции наследником, а индексы ведутся здесь
+    void index(Task task) {
+        statusIndex.put(task);
+        if (textIndex != null) textIndex.put(task);
+    }
+
+    private void unindex(TaskType type, int id) {
+        statusIndex.remove(type, id);
+        if (textIndex != null) textIndex.remove(id);
+    }
+
+    private void clearIndexes(TaskType type, IntHashMap<?> items) {
+        if (textIndex != null) items.forEachKey(textIndex::remove);
+        statusIndex.clear(type);
+    }
+
+    // Внутри транзакции пересчёт откладывается до фиксации и выполняется по разу на эпик
+    protected void updateEpicStatus(int epicId) {
+        if (transaction != null) {
+            transaction.deferredEpics.add(epicId);
+            return;
+        }
         Epic epic = epics.get(epicId);
         if (epic == null) return;
 
-        List<Subtask> subs = getSubtasksByEpicId(epicId);
-        if (subs.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            epic.setStartTime(null);
-            epic.setDuration(Duration.ZERO);
-            epic.setEndTime(null);
+        epic.applySubtaskTotals();
+        statusIndex.put(epic);
+    }
+
+    @Override
+    public void inTransaction(Consumer<TaskManager> work) {
+        if (transaction != null) {
+            work.accept(this);
             return;
         }
+        TransactionLog log = new TransactionLog(taskIdCounter);
+        transaction = log;
+        try {
+            work.accept(this);
+        } catch (RuntimeException | Error e) {
+            transaction = null;
+            rollback(log);
+            throw e;
+        }
+        // Дальше транзакция зафиксирована: сохранение могло уже дойти до диска,
+        // поэтому его ошибка уходит вызывающему без отката памяти
+        transaction = null;
+        log.deferredEpics.forEach(this::updateEpicStatus);
+        afterCommit(changedItems(log), removedItems(log));
+    }
+
+    protected boolean isInTransaction() {
+        return transaction != null;
+    }
+
+    // Вызывается после фиксации транзакции: changed - текущие версии изменённых элементов
+    // (эпики, затем задачи и подзадачи), removed - удалённые элементы
+    protected void afterCommit(List<Task> changed, List<Task> removed) {
+    }
+
+    private void remember(int id, TaskType type, Task current) {
+        if (transaction != null) transaction.remember(id, type, current);
+    }
+
+    private void reportConflict(String message) {
+        if (transaction != null) throw new TaskConflictException(message);
+        System.out.println(message);
+    }
+
+    private Task current(int id, TaskType type) {
+        return switch (type) {
+            case TASK -> tasks.get(id);
+            case EPIC -> epics.get(id);
+            case SUBTASK -> subtasks.get(id);
+        };
+    }
+
+    private List<Task> changedItems(TransactionLog log) {
+        List<Task> changed = new ArrayList<>();
+        for (TaskType type : List.of(TaskType.EPIC, TaskType.TASK, TaskType.SUBTASK)) {
+            log.images.forEach((id, image) -> {
+                Task task = image.type() == type ? current(id, type) : null;
+                if (task != null) changed.add(task);
+            });
+        }
+        return changed;
+    }
 
-        boolean allNew = subs.stream().allMatch(s -> s.getStatus() == Status.NEW);
-        boolean allDone = subs.stream().allMatch(s -> s.getStatus() == Status.DONE);
-        epic.setStatus(allDone ? Status.DONE : allNew ? Status.NEW : Status.IN_PROGRESS);
+    private List<Task> removedItems(TransactionLog log) {
+        List<Task> removed = new ArrayList<>();
+        log.images.forEach((id, image) -> {
+            if (image.ref() != null && current(id, image.type()) == null) removed.add(image.ref());
+        });
+        return removed;
+    }
 
-        epic.setDuration(epic.calculateDuration(this));
-        epic.setStartTime(epic.calculateStartTime(this));
-        epic.setEndTime(epic.calculateEndTime(this));
+    // Прежние версии возвращаются в те же объекты и коллекции, затем связи эпиков
+    // восстанавливаются по сохранённым спискам подзадач. История просмотров не откатывается
+    private void rollback(TransactionLog log) {
+        for (Map.Entry<Integer, TransactionLog.Image> entry : log.images.entrySet()) {
+            int id = entry.getKey();
+            switch (entry.getValue().type()) {
+                case TASK -> removePrioritized(tasks.remove(id));
+                case SUBTASK -> removePrioritized(subtasks.remove(id));
+                case EPIC -> epics.remove(id);
+            }
+            unindex(entry.getValue().type(), id);
+        }
+        for (Map.Entry<Integer, TransactionLog.Image> entry : log.images.entrySet()) {
+            TransactionLog.Image image = entry.getValue();
+            if (image.ref() == null) continue;
+            image.restoreFields();
+            index(image.ref());
+            switch (image.ref()) {
+                case Epic epic -> epics.put(entry.getKey(), epic);
+                case Subtask subtask -> subtasks.put(entry.getKey(), subtask);
+                default -> tasks.put(entry.getKey(), image.ref());
+            }
+        }
+        for (TransactionLog.Image image : log.images.values()) {
+            if (image.ref() != null && !(image.ref() instanceof Epic)) addPrioritized(image.ref());
+        }
+        for (TransactionLog.Image image : log.images.values()) {
+            if (!(image.ref() instanceof Epic epic)) continue;
+            epic.clearSubtaskIds();
+            for (Integer subId : image.subtaskIds()) {
+                epic.addSubtaskId(subId);
+                Subtask subtask = subtasks.get(subId);
+                if (subtask != null) epic.trackSubtask(subtask);
+            }
+            updateEpicStatus(epic.getId());
+        }
+        taskIdCounter = log.idCounter;
     }
-}
\ No newline at end of file
+}
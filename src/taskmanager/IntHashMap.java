@@ -0,0 +1,339 @@
+package taskmanager;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Отображение int -> объект без упаковки ключей. Пары лежат плотными массивами в порядке вставки,
+// как в LinkedHashMap, а хеш-таблица с открытой адресацией хранит только номера пар.
+// Удалённая пара оставляет дыру (value == null), поэтому null в качестве значения не допускается.
+// Дыры убираются при расширении, а также как только их становится больше, чем живых пар:
+// обход идёт по всем занятым ячейкам, и без этого после массового удаления стоил бы прежний размер. Интерфейс Map сохранён для совместимости,
+// но горячие пути вызывают методы с int-ключом
+public final class IntHashMap<V> extends AbstractMap<Integer, V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private Object[] values;
+    // Номер пары + 1; 0 - свободная ячейка. Размер - степень двойки, заполнение не больше половины
+    private int[] table;
+    private int used;
+    private int size;
+    private int modCount;
+
+    public IntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashMap(int expectedSize) {
+        allocate(Math.max(MIN_CAPACITY, expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(MIN_CAPACITY, capacity) * 2 - 1) << 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Ячейка таблицы с этим ключом или -1
+    private int slotOf(int key) {
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) return -1;
+            if (keys[entry - 1] == key) return slot;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : (V) values[table[slot] - 1];
+    }
+
+    public boolean containsKey(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    // Новый ключ попадает в конец порядка обхода, у существующего заменяется только значение
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            int index = table[slot] - 1;
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (used == keys.length) {
+            resize(Math.max(MIN_CAPACITY, size * 2));
+        }
+        keys[used] = key;
+        values[used] = value;
+        used++;
+        size++;
+        modCount++;
+        insert(key, used);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) return null;
+        int index = table[slot] - 1;
+        V previous = (V) values[index];
+        values[index] = null;
+        size--;
+        deleteSlot(slot);
+        if (size == 0) {
+            used = 0;
+        } else if (used - size > size && used > MIN_CAPACITY) {
+            resize(Math.max(MIN_CAPACITY, size * 2));
+        }
+        return previous;
+    }
+
+    // Занятые ячейки плотных массивов вместе с дырами - столько шагов делает любой обход
+    public int slotsInUse() {
+        return used;
+    }
+
+    // Заранее выделяет место под expectedSize пар, например перед загрузкой снимка
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > keys.length) resize(expectedSize);
+    }
+
+    private void insert(int key, int entry) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+    }
+
+    // Удаление из таблицы с линейным пробированием сдвигом назад, без надгробий
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = hash(keys[table[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    // Уплотняет пары, выбрасывая дыры, и перестраивает таблицу под новую ёмкость
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldUsed = used;
+        allocate(capacity);
+        used = 0;
+        for (int i = 0; i < oldUsed; i++) {
+            if (oldValues[i] == null) continue;
+            keys[used] = oldKeys[i];
+            values[used] = oldValues[i];
+            used++;
+            insert(oldKeys[i], used);
+        }
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer id ? get(id.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer id && containsKey(id.intValue());
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer id ? remove(id.intValue()) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, 0, used, null);
+        Arrays.fill(table, 0);
+        used = 0;
+        size = 0;
+        modCount++;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        int expected = modCount;
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) action.accept(keys[i]);
+            if (modCount != expected) throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        int expected = modCount;
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) action.accept(keys[i], (V) values[i]);
+            if (modCount != expected) throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Cursor<>() {
+                    @Override
+                    Integer at(int index) {
+                        return keys[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Cursor<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V at(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void forEach(Consumer<? super V> action) {
+                int expected = modCount;
+                for (int i = 0; i < used; i++) {
+                    if (values[i] != null) action.accept((V) values[i]);
+                    if (modCount != expected) throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new Cursor<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Entry<Integer, V> at(int index) {
+                        return new SimpleImmutableEntry<>(keys[index], (V) values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Обход плотного массива с пропуском дыр; добавление во время обхода запрещено.
+    // Удаление через итератор может уплотнить массивы, тогда курсор встаёт на число пройденных живых пар
+    private abstract class Cursor<T> implements Iterator<T> {
+        private int next = skipHoles(0);
+        private int last = -1;
+        // Живые пары перед next
+        private int passed;
+        private int expected = modCount;
+
+        abstract T at(int index);
+
+        private int skipHoles(int from) {
+            while (from < used && values[from] == null) from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < used;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expected) throw new ConcurrentModificationException();
+            if (next >= used) throw new NoSuchElementException();
+            last = next;
+            next = skipHoles(next + 1);
+            passed++;
+            return at(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (modCount != expected) throw new ConcurrentModificationException();
+            Object[] before = values;
+            IntHashMap.this.remove(keys[last]);
+            last = -1;
+            passed--;
+            if (values != before) next = passed;
+            expected = modCount;
+        }
+    }
+}
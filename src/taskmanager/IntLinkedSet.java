@@ -0,0 +1,49 @@
+package taskmanager;
+
+import java.util.ArrayList;
+import java.util.function.IntConsumer;
+
+// Множество int в порядке добавления: добавление, удаление и проверка за O(1) без упаковки
+public final class IntLinkedSet {
+    private static final Object PRESENT = new Object();
+
+    private final IntHashMap<Object> map = new IntHashMap<>();
+
+    // false, если значение уже было в множестве
+    public boolean add(int value) {
+        return map.put(value, PRESENT) == null;
+    }
+
+    public boolean remove(int value) {
+        return map.remove(value) != null;
+    }
+
+    public boolean contains(int value) {
+        return map.containsKey(value);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public void forEach(IntConsumer action) {
+        map.forEachKey(action);
+    }
+
+    public ArrayList<Integer> toList() {
+        return new ArrayList<>(map.keySet());
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
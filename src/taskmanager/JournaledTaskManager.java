@@ -0,0 +1,318 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+// Каждое изменение дописывается одной строкой в журнал рядом со снимком,
+// а когда журнал разрастается, он сворачивается в новый CSV-снимок в фоне.
+// Журнал делится на поколения строками GEN,<номер>; записи до первой такой строки - поколение 1.
+// Заголовок снимка помнит последнее вошедшее в него поколение, и при загрузке эти записи
+// пропускаются, даже если сбой случился между записью снимка и удалением старого журнала.
+// Новый снимок собирается фоновым потоком из прежнего снимка и старого журнала на диске,
+// поток вызывающего кода только переименовывает журнал.
+public class JournaledTaskManager extends FileBackedTaskManager {
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DEL";
+    private static final String CLEAR = "CLEAR";
+    private static final String GENERATION = "GEN";
+    private static final String COVERED = ",journal=";
+
+    private final Path journal;
+    private final Path rotatedJournal;
+    private final long compactionThreshold;
+    private long journalSize;
+    private boolean replaying;
+    // Поколение текущего журнала; 0 - ещё не определено по файлам
+    private long generation;
+    // Строка GEN текущего поколения уже в журнале
+    private boolean generationStarted;
+    private FutureTask<Void> compaction;
+
+    public JournaledTaskManager(File file) {
+        this(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public JournaledTaskManager(File file, long compactionThreshold) {
+        super(file);
+        this.journal = Path.of(file.getPath() + ".journal");
+        this.rotatedJournal = Path.of(file.getPath() + ".journal.old");
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public static JournaledTaskManager loadFromFile(File file) {
+        return loadFromFile(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public static JournaledTaskManager loadFromFile(File file, long compactionThreshold) {
+        JournaledTaskManager manager = new JournaledTaskManager(file, compactionThreshold);
+        manager.load();
+        return manager;
+    }
+
+    @Override
+    protected void load() {
+        if (file.exists()) super.load();
+        replaying = true;
+        try {
+            long covered = coveredGeneration();
+            long rotated = replay(rotatedJournal, covered);
+            long current = replay(journal, covered);
+            journalSize = Files.exists(journal) ? Files.size(journal) : 0;
+            generation = Math.max(covered, Math.max(rotated, current)) + 1;
+            generationStarted = false;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала", e);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    // Поколение, до которого включительно записи журнала уже вошли в снимок
+    private long coveredGeneration() throws IOException {
+        if (!file.exists()) return 0;
+        String header;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            header = reader.readLine();
+        }
+        int at = header == null ? -1 : header.indexOf(COVERED);
+        return at < 0 ? 0 : Long.parseLong(header.substring(at + COVERED.length()));
+    }
+
+    // Применяет записи поколений новее covered; возвращает последнее поколение в файле (0 - файла нет)
+    private long replay(Path path, long covered) throws IOException {
+        if (!Files.exists(path)) return 0;
+        List<String> records = Files.readAllLines(path, StandardCharsets.UTF_8);
+        long recordGeneration = 1;
+        for (int i = 0; i < records.size(); i++) {
+            String record = records.get(i);
+            if (record.isBlank()) continue;
+            try {
+                if (record.startsWith(GENERATION + ",")) {
+                    recordGeneration = Long.parseLong(record.substring(GENERATION.length() + 1));
+                    continue;
+                }
+                if (recordGeneration <= covered) continue;
+                apply(record);
+            } catch (RuntimeException e) {
+                // Последняя запись могла оборваться при сбое во время дозаписи
+                if (i == records.size() - 1) break;
+                throw new ManagerSaveException("Повреждённая запись журнала: " + record, e);
+            }
+        }
+        return recordGeneration;
+    }
+
+    private void apply(String record) {
+        int comma = record.indexOf(',');
+        String operation = record.substring(0, comma);
+        String payload = record.substring(comma + 1);
+        switch (operation) {
+            case PUT -> applyPut(fromString(payload));
+            case DELETE -> applyDelete(Integer.parseInt(payload));
+            case CLEAR -> applyClear(TaskType.valueOf(payload));
+            default -> throw new IllegalArgumentException("Неизвестная операция журнала: " + operation);
+        }
+    }
+
+    private void applyPut(Task task) {
+        if (task instanceof Epic epic) {
+            if (epics.containsKey(epic.getId())) {
+                updateEpic(epic);
+            } else {
+                restore(epic);
+            }
+        } else if (task instanceof Subtask subtask) {
+            if (subtasks.containsKey(subtask.getId())) {
+                updateSubtask(subtask);
+            } else {
+                restore(subtask);
+            }
+        } else if (tasks.containsKey(task.getId())) {
+            updateTask(task);
+        } else {
+            restore(task);
+        }
+    }
+
+    private void applyDelete(int id) {
+        if (tasks.containsKey(id)) {
+            deleteTaskById(id);
+        } else if (epics.containsKey(id)) {
+            deleteEpicById(id);
+        } else {
+            deleteSubtaskById(id);
+        }
+    }
+
+    private void applyClear(TaskType type) {
+        switch (type) {
+            case TASK -> deleteAllTasks();
+            case EPIC -> deleteAllEpics();
+            case SUBTASK -> deleteAllSubtasks();
+        }
+    }
+
+    @Override
+    protected void persistChange(Task task) {
+        append(PUT + "," + toString(task));
+    }
+
+    @Override
+    protected void persistRemoval(Task task) {
+        append(DELETE + "," + task.getId());
+    }
+
+    @Override
+    protected void persistClear(TaskType type) {
+        append(CLEAR + "," + type);
+    }
+
+    @Override
+    protected void persistBatch(List<? extends Task> changed) {
+        StringBuilder records = new StringBuilder();
+        for (Task task : changed) {
+            if (!records.isEmpty()) records.append('\n');
+            records.append(PUT).append(',').append(toString(task));
+        }
+        append(records.toString());
+    }
+
+    // Транзакция попадает в журнал одной дозаписью: сначала удаления, потом новые версии
+    @Override
+    protected void afterCommit(List<Task> changed, List<Task> removed) {
+        if (changed.isEmpty() && removed.isEmpty()) return;
+        StringBuilder records = new StringBuilder();
+        for (Task task : removed) {
+            if (!records.isEmpty()) records.append('\n');
+            records.append(DELETE).append(',').append(task.getId());
+        }
+        for (Task task : changed) {
+            if (!records.isEmpty()) records.append('\n');
+            records.append(PUT).append(',').append(toString(task));
+        }
+        append(records.toString());
+    }
+
+    private void append(String record) {
+        if (replaying) return;
+        try {
+            if (!generationStarted) {
+                if (generation == 0) generation = latestGeneration() + 1;
+                record = GENERATION + "," + generation + "\n" + record;
+                generationStarted = true;
+            }
+            byte[] bytes = (record + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(journal, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalSize += bytes.length;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал", e);
+        }
+        // Записи уже в журнале, и изменение состоялось: неудачное сворачивание не должно выглядеть
+        // как неудачная запись. Журнал остаётся длинным, попытка повторится при следующей дозаписи
+        if (journalSize >= compactionThreshold) {
+            try {
+                compact();
+            } catch (ManagerSaveException e) {
+                System.out.println("Ошибка сворачивания журнала: " + e.getMessage());
+            }
+        }
+    }
+
+    // Менеджер создан без загрузки: поколение продолжает то, что уже лежит на диске
+    private long latestGeneration() throws IOException {
+        return Math.max(coveredGeneration(), Math.max(lastGeneration(rotatedJournal), lastGeneration(journal)));
+    }
+
+    private static long lastGeneration(Path path) throws IOException {
+        if (!Files.exists(path)) return 0;
+        long last = 1;
+        for (String record : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (record.startsWith(GENERATION + ",")) last = Long.parseLong(record.substring(GENERATION.length() + 1));
+        }
+        return last;
+    }
+
+    // Все записи старого журнала не новее поколения upTo. Снимок строится копией менеджера
+    // из файлов на диске, поэтому фоновый поток не читает коллекции, которые меняет вызывающий
+    private void compact() {
+        if (compaction != null && !compaction.isDone()) return;
+        long upTo = generation;
+        try {
+            rotateJournal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка ротации журнала", e);
+        }
+        journalSize = 0;
+        generation++;
+        generationStarted = false;
+        compaction = new FutureTask<>(() -> {
+            JournaledTaskManager replica = new JournaledTaskManager(file, Long.MAX_VALUE);
+            writeSnapshotAtomically(replica.compactedSnapshot(upTo));
+            Files.deleteIfExists(rotatedJournal);
+            return null;
+        });
+        Thread thread = new Thread(compaction, "journal-compaction");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Прежний снимок плюс записи старого журнала, которых в нём ещё нет
+    private String compactedSnapshot(long upTo) throws IOException {
+        long covered = coveredGeneration();
+        if (file.exists()) super.load();
+        replaying = true;
+        replay(rotatedJournal, covered);
+        String header = HEADER.substring(0, HEADER.length() - 1) + COVERED + upTo + "\n";
+        return snapshot(header, tasks.values(), epics.values(), subtasks.values());
+    }
+
+    // Если прошлое сворачивание не удалось, старый журнал ещё нужен: дописываем текущий к нему
+    private void rotateJournal() throws IOException {
+        if (Files.exists(rotatedJournal)) {
+            byte[] records = Files.readAllBytes(journal);
+            // Записи до первой строки GEN - поколение 1; за чужой строкой GEN это надо указать явно
+            if (!new String(records, 0, Math.min(records.length, GENERATION.length() + 1), StandardCharsets.UTF_8)
+                    .equals(GENERATION + ",")) {
+                Files.writeString(rotatedJournal, GENERATION + ",1\n", StandardOpenOption.APPEND);
+            }
+            Files.write(rotatedJournal, records, StandardOpenOption.APPEND);
+            Files.delete(journal);
+        } else {
+            Files.move(journal, rotatedJournal, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void writeSnapshotAtomically(String content) throws IOException {
+        Path target = file.toPath();
+        Path temp = Path.of(file.getPath() + ".tmp");
+        Files.writeString(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void flush() {
+        if (compaction == null) return;
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание сворачивания журнала прервано", e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Ошибка сворачивания журнала", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package taskmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// Отсортированное множество long без упаковки: ключи лежат в отсортированных блоках до CHUNK штук.
+// Вставка и удаление сдвигают только один блок, поиск - двоичный по первым ключам блоков и внутри блока.
+// NONE (Long.MIN_VALUE) означает "нет такого ключа" и сам ключом быть не может
+final class LongSortedSet {
+    static final long NONE = Long.MIN_VALUE;
+    private static final int CHUNK = 512;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean add(long key) {
+        if (key == NONE) throw new IllegalArgumentException("Недопустимый ключ");
+        if (chunks.isEmpty()) chunks.add(new Chunk());
+        int index = Math.max(0, chunkFor(key));
+        Chunk chunk = chunks.get(index);
+        int position = Arrays.binarySearch(chunk.keys, 0, chunk.size, key);
+        if (position >= 0) return false;
+        position = -position - 1;
+        if (chunk.size == CHUNK) {
+            Chunk right = chunk.split();
+            chunks.add(index + 1, right);
+            if (position > chunk.size) {
+                chunk = right;
+                position -= CHUNK / 2;
+            }
+        }
+        chunk.insert(position, key);
+        size++;
+        return true;
+    }
+
+    boolean remove(long key) {
+        int index = chunkFor(key);
+        if (index < 0) return false;
+        Chunk chunk = chunks.get(index);
+        int position = Arrays.binarySearch(chunk.keys, 0, chunk.size, key);
+        if (position < 0) return false;
+        chunk.delete(position);
+        if (chunk.size == 0) chunks.remove(index);
+        size--;
+        return true;
+    }
+
+    boolean contains(long key) {
+        return floor(key) == key && key != NONE;
+    }
+
+    void clear() {
+        chunks.clear();
+        size = 0;
+    }
+
+    // Наибольший ключ <= key или NONE
+    long floor(long key) {
+        int index = chunkFor(key);
+        if (index < 0) return NONE;
+        Chunk chunk = chunks.get(index);
+        int position = Arrays.binarySearch(chunk.keys, 0, chunk.size, key);
+        return position >= 0 ? key : chunk.keys[-position - 2];
+    }
+
+    long lower(long key) {
+        return key == NONE ? NONE : floor(key - 1);
+    }
+
+    // Ключи >= from по возрастанию
+    PrimitiveIterator.OfLong iterator(long from) {
+        int index = Math.max(0, chunkFor(from));
+        int position = 0;
+        if (index < chunks.size()) {
+            Chunk chunk = chunks.get(index);
+            position = Arrays.binarySearch(chunk.keys, 0, chunk.size, from);
+            if (position < 0) position = -position - 1;
+        }
+        return new Cursor(index, position);
+    }
+
+    PrimitiveIterator.OfLong iterator() {
+        return new Cursor(0, 0);
+    }
+
+    // Последний блок, первый ключ которого <= key; -1, если key меньше всех ключей
+    private int chunkFor(long key) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chunks.get(middle).keys[0] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private static final class Chunk {
+        private final long[] keys = new long[CHUNK];
+        private int size;
+
+        private void insert(int position, long key) {
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            keys[position] = key;
+            size++;
+        }
+
+        private void delete(int position) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            size--;
+        }
+
+        // Переносит старшую половину ключей в новый блок
+        private Chunk split() {
+            Chunk right = new Chunk();
+            right.size = size - CHUNK / 2;
+            System.arraycopy(keys, CHUNK / 2, right.keys, 0, right.size);
+            size = CHUNK / 2;
+            return right;
+        }
+    }
+
+    // Изменение множества во время обхода не поддерживается
+    private final class Cursor implements PrimitiveIterator.OfLong {
+        private int index;
+        private int position;
+
+        private Cursor(int index, int position) {
+            this.index = index;
+            this.position = position;
+            skipExhausted();
+        }
+
+        private void skipExhausted() {
+            while (index < chunks.size() && position >= chunks.get(index).size) {
+                index++;
+                position = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < chunks.size();
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) throw new NoSuchElementException();
+            long key = chunks.get(index).keys[position++];
+            skipExhausted();
+            return key;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package taskmanager;
 
 import java.io.File;
+import java.time.Duration;
 
 public class Managers {
     private Managers() {
@@ -10,15 +11,72 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrentTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static TaskManager getColumnarTaskManager() {
+        return new ColumnarTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
 
+    public static InMemoryHistoryManager getDefaultHistory(HistoryConfig config) {
+        return new InMemoryHistoryManager(config);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
     public static TaskManager getFileBackedTaskManager(File file) {
         return new FileBackedTaskManager(file);
     }
 
+    public static TaskManager getFileBackedTaskManager(File file, SnapshotFormat format) {
+        return new FileBackedTaskManager(file, format);
+    }
+
     public static FileBackedTaskManager loadFromFile(File file) {
         return FileBackedTaskManager.loadFromFile(file);
     }
-}
\ No newline at end of file
+
+    public static FileBackedTaskManager loadFromFile(File file, SnapshotFormat format) {
+        return FileBackedTaskManager.loadFromFile(file, format);
+    }
+
+    public static void convertSnapshot(File source, SnapshotFormat sourceFormat,
+                                       File target, SnapshotFormat targetFormat) {
+        FileBackedTaskManager.convert(source, sourceFormat, target, targetFormat);
+    }
+
+    public static WriteBehindTaskManager getWriteBehindTaskManager(File file, Duration maxLatency, int maxPendingOps) {
+        return new WriteBehindTaskManager(file, maxLatency, maxPendingOps);
+    }
+
+    public static JournaledTaskManager getJournaledTaskManager(File file) {
+        return new JournaledTaskManager(file);
+    }
+
+    public static JournaledTaskManager loadJournaledFromFile(File file) {
+        return JournaledTaskManager.loadFromFile(file);
+    }
+
+    public static MappedTaskManager getMappedTaskManager(File file) {
+        return new MappedTaskManager(file);
+    }
+
+    public static MappedTaskManager loadMappedFromFile(File file) {
+        return MappedTaskManager.loadFromFile(file);
+    }
+
+    public static ShardedTaskManager getShardedTaskManager(File directory) {
+        return new ShardedTaskManager(directory);
+    }
+
+    public static ShardedTaskManager loadShardedFromFile(File directory) {
+        return ShardedTaskManager.loadFromFile(directory);
+    }
+}
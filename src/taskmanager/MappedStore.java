@@ -0,0 +1,329 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Хранилище задач в отображённых в память файлах одного поколения: записи фиксированного размера
+// в <файл>.records.<поколение> и строки UTF-8 в куче <файл>.strings.<поколение>. Изменение задачи переписывает
+// её запись на месте, строки дописываются в кучу, только если изменились.
+// Освобождённые записи связаны в список свободных и занимаются заново.
+//
+// Заголовок (HEADER_SIZE байт): сигнатура, версия, размер записи, число занятых мест,
+// голова списка свободных (номер + 1), счётчик id, поколение кучи, занято и выброшено байт кучи.
+// Запись: состояние, тип, статус (ordinal + 1, 0 - нет), флаги времени, id,
+// id эпика (у свободной записи - следующая свободная + 1), начало (наносекунды, epoch-секунда),
+// длительность (секунды, наносекунды), имя и описание (смещение и длина в куче, длина -1 - null).
+// Изменения попадают в страничный кэш сразу, на диск - по force(); запись на месте не атомарна
+final class MappedStore implements Closeable {
+    static final int MAGIC = 0x4B414E4D;
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int MIN_RECORDS = 1024;
+    private static final int MIN_HEAP = 1 << 20;
+
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_SIZE = 8;
+    private static final int H_SLOTS = 12;
+    private static final int H_FREE = 16;
+    private static final int H_ID_COUNTER = 20;
+    private static final int H_GENERATION = 24;
+    private static final int H_HEAP_USED = 32;
+    private static final int H_HEAP_GARBAGE = 36;
+
+    private static final int R_STATE = 0;
+    private static final int R_TYPE = 1;
+    private static final int R_STATUS = 2;
+    private static final int R_FLAGS = 3;
+    private static final int R_ID = 4;
+    private static final int R_EPIC = 8;
+    private static final int R_START_NANO = 12;
+    private static final int R_START = 16;
+    private static final int R_DURATION = 24;
+    private static final int R_DURATION_NANO = 32;
+    private static final int R_NAME = 36;
+    private static final int R_DESCRIPTION = 44;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 2;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final FileChannel recordChannel;
+    private final FileChannel heapChannel;
+    private MappedByteBuffer records;
+    private MappedByteBuffer heap;
+    // id -> номер записи + 1
+    private int[] slotOf = new int[MIN_RECORDS];
+
+    private MappedStore(FileChannel recordChannel, FileChannel heapChannel) {
+        this.recordChannel = recordChannel;
+        this.heapChannel = heapChannel;
+    }
+
+    static Path recordsPath(Path base, long generation) {
+        return Path.of(base + ".records." + generation);
+    }
+
+    static Path heapPath(Path base, long generation) {
+        return Path.of(base + ".strings." + generation);
+    }
+
+    // Новое пустое хранилище поколения generation; существующие файлы этого поколения перезаписываются
+    static MappedStore create(Path base, long generation, int expectedRecords) throws IOException {
+        Path recordsPath = recordsPath(base, generation);
+        Path heapPath = heapPath(base, generation);
+        FileChannel recordChannel = FileChannel.open(recordsPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel heapChannel = FileChannel.open(heapPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedStore store = new MappedStore(recordChannel, heapChannel);
+        store.records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                recordsBytes(Math.max(MIN_RECORDS, expectedRecords)));
+        store.heap = heapChannel.map(FileChannel.MapMode.READ_WRITE, 0, MIN_HEAP);
+        store.records.putInt(H_MAGIC, MAGIC);
+        store.records.putInt(H_VERSION, VERSION);
+        store.records.putInt(H_RECORD_SIZE, RECORD_SIZE);
+        store.records.putLong(H_GENERATION, generation);
+        return store;
+    }
+
+    static MappedStore open(Path base, long generation) throws IOException {
+        Path recordsPath = recordsPath(base, generation);
+        FileChannel recordChannel = FileChannel.open(recordsPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0, recordChannel.size());
+        if (records.capacity() < HEADER_SIZE || records.getInt(H_MAGIC) != MAGIC
+                || records.getInt(H_VERSION) != VERSION || records.getInt(H_RECORD_SIZE) != RECORD_SIZE
+                || records.getLong(H_GENERATION) != generation) {
+            recordChannel.close();
+            throw new IOException("Неизвестный формат хранилища: " + recordsPath);
+        }
+        Path heapPath = heapPath(base, generation);
+        FileChannel heapChannel = FileChannel.open(heapPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedStore store = new MappedStore(recordChannel, heapChannel);
+        store.records = records;
+        store.heap = heapChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_HEAP, heapChannel.size()));
+        for (int slot = 0; slot < store.slots(); slot++) {
+            int offset = offset(slot);
+            if (records.get(offset + R_STATE) == LIVE) store.bind(records.getInt(offset + R_ID), slot);
+        }
+        return store;
+    }
+
+    private static long recordsBytes(int slots) {
+        return HEADER_SIZE + (long) slots * RECORD_SIZE;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private int slots() {
+        return records.getInt(H_SLOTS);
+    }
+
+    long generation() {
+        return records.getLong(H_GENERATION);
+    }
+
+    int idCounter() {
+        return records.getInt(H_ID_COUNTER);
+    }
+
+    void setIdCounter(int idCounter) {
+        records.putInt(H_ID_COUNTER, idCounter);
+    }
+
+    // Больше половины кучи - строки, которые уже никто не использует
+    boolean needsCompaction() {
+        int garbage = records.getInt(H_HEAP_GARBAGE);
+        return garbage > MIN_HEAP && garbage > records.getInt(H_HEAP_USED) / 2;
+    }
+
+    // Все живые записи в порядке id. Места освобождённых записей занимают новые, поэтому порядок мест
+    // в файле не совпадает с порядком создания, а по нему восстанавливаются списки подзадач эпиков
+    List<Task> readAll() {
+        List<Task> result = new ArrayList<>(slots());
+        for (int slot = 0; slot < slots(); slot++) {
+            if (records.get(offset(slot) + R_STATE) == LIVE) result.add(read(offset(slot)));
+        }
+        result.sort(Comparator.comparingInt(Task::getId));
+        return result;
+    }
+
+    private Task read(int offset) {
+        String name = readString(offset + R_NAME);
+        String description = readString(offset + R_DESCRIPTION);
+        byte statusCode = records.get(offset + R_STATUS);
+        Status status = statusCode == 0 ? null : STATUSES[statusCode - 1];
+        Task task = switch (TYPES[records.get(offset + R_TYPE)]) {
+            case TASK -> new Task(name, description, status);
+            case EPIC -> new Epic(name, description);
+            case SUBTASK -> new Subtask(name, description, status, records.getInt(offset + R_EPIC));
+        };
+        task.setId(records.getInt(offset + R_ID));
+        if (task instanceof Epic) {
+            task.setStatus(status);
+            return task;
+        }
+        int flags = records.get(offset + R_FLAGS);
+        if ((flags & HAS_START) != 0) {
+            task.setStartTime(LocalDateTime.ofEpochSecond(records.getLong(offset + R_START),
+                    records.getInt(offset + R_START_NANO), ZoneOffset.UTC));
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            task.setDuration(Duration.ofSeconds(records.getLong(offset + R_DURATION),
+                    records.getInt(offset + R_DURATION_NANO)));
+        }
+        return task;
+    }
+
+    // Запись задачи на её прежнее место или на свободное
+    void put(Task task) throws IOException {
+        int slot = slotFor(task.getId());
+        if (slot < 0) slot = allocate(task.getId());
+        int offset = offset(slot);
+        writeString(offset + R_NAME, task.getName());
+        writeString(offset + R_DESCRIPTION, task.getDescription());
+        TaskType type = StatusIndex.typeOf(task);
+        records.put(offset + R_TYPE, (byte) type.ordinal());
+        records.put(offset + R_STATUS, task.getStatus() == null ? 0 : (byte) (task.getStatus().ordinal() + 1));
+        records.putInt(offset + R_ID, task.getId());
+        records.putInt(offset + R_EPIC, task instanceof Subtask subtask ? subtask.getEpicId() : 0);
+        LocalDateTime start = type == TaskType.EPIC ? null : task.getStartTime();
+        Duration duration = type == TaskType.EPIC ? null : task.getDuration();
+        records.put(offset + R_FLAGS, (byte) ((start != null ? HAS_START : 0) | (duration != null ? HAS_DURATION : 0)));
+        records.putLong(offset + R_START, start == null ? 0 : start.toEpochSecond(ZoneOffset.UTC));
+        records.putInt(offset + R_START_NANO, start == null ? 0 : start.getNano());
+        records.putLong(offset + R_DURATION, duration == null ? 0 : duration.getSeconds());
+        records.putInt(offset + R_DURATION_NANO, duration == null ? 0 : duration.getNano());
+        records.put(offset + R_STATE, LIVE);
+    }
+
+    void remove(int id) {
+        int slot = slotFor(id);
+        if (slot < 0) return;
+        int offset = offset(slot);
+        release(offset + R_NAME);
+        release(offset + R_DESCRIPTION);
+        records.put(offset + R_STATE, FREE);
+        records.putInt(offset + R_EPIC, records.getInt(H_FREE));
+        records.putInt(H_FREE, slot + 1);
+        slotOf[id] = 0;
+    }
+
+    // Удаление эпиков уносит и все подзадачи
+    void removeAll(TaskType type) {
+        for (int slot = 0; slot < slots(); slot++) {
+            int offset = offset(slot);
+            if (records.get(offset + R_STATE) != LIVE) continue;
+            TaskType stored = TYPES[records.get(offset + R_TYPE)];
+            if (stored == type || (type == TaskType.EPIC && stored == TaskType.SUBTASK)) {
+                remove(records.getInt(offset + R_ID));
+            }
+        }
+    }
+
+    private int slotFor(int id) {
+        return id > 0 && id < slotOf.length ? slotOf[id] - 1 : -1;
+    }
+
+    private void bind(int id, int slot) {
+        if (id >= slotOf.length) slotOf = Arrays.copyOf(slotOf, Math.max(id + 1, slotOf.length * 2));
+        slotOf[id] = slot + 1;
+    }
+
+    // Место из списка свободных, иначе новое в конце; имя и описание новой записи пусты (null)
+    private int allocate(int id) throws IOException {
+        int slot = records.getInt(H_FREE) - 1;
+        if (slot >= 0) {
+            records.putInt(H_FREE, records.getInt(offset(slot) + R_EPIC));
+        } else {
+            slot = slots();
+            if (recordsBytes(slot + 1) > records.capacity()) {
+                long size = recordsBytes(Math.max(slot + 1, slot * 2));
+                if (size > Integer.MAX_VALUE) throw new IOException("Хранилище переполнено");
+                records = recordChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            records.putInt(H_SLOTS, slot + 1);
+        }
+        records.putInt(offset(slot) + R_NAME + 4, -1);
+        records.putInt(offset(slot) + R_DESCRIPTION + 4, -1);
+        bind(id, slot);
+        return slot;
+    }
+
+    private String readString(int field) {
+        int length = records.getInt(field + 4);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        heap.get(records.getInt(field), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Строка, совпадающая с уже записанной, остаётся на месте
+    private void writeString(int field, String value) throws IOException {
+        int length = records.getInt(field + 4);
+        if (value == null) {
+            if (length >= 0) release(field);
+            records.putInt(field + 4, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (length == bytes.length && heap.slice(records.getInt(field), length).equals(ByteBuffer.wrap(bytes))) {
+            return;
+        }
+        if (length >= 0) release(field);
+        int used = records.getInt(H_HEAP_USED);
+        if ((long) used + bytes.length > heap.capacity()) {
+            long size = Math.max((long) used + bytes.length, heap.capacity() * 2L);
+            if (size > Integer.MAX_VALUE) throw new IOException("Куча строк переполнена");
+            heap = heapChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        heap.put(used, bytes);
+        records.putInt(H_HEAP_USED, used + bytes.length);
+        records.putInt(field, used);
+        records.putInt(field + 4, bytes.length);
+    }
+
+    private void release(int field) {
+        int length = records.getInt(field + 4);
+        if (length > 0) records.putInt(H_HEAP_GARBAGE, records.getInt(H_HEAP_GARBAGE) + length);
+    }
+
+    // Сбрасывает изменённые страницы обоих файлов на диск
+    void force() {
+        heap.force();
+        records.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        recordChannel.close();
+        heapChannel.close();
+    }
+}
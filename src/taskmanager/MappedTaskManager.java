@@ -0,0 +1,201 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Task;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Файловый менеджер без перезаписи снимка: каждое изменение правит одну запись MappedStore
+// на месте, удаление освобождает запись. При открытии записи читаются прямо из отображения,
+// без разбора текста. Когда куча строк наполовину состоит из мусора, хранилище собирается
+// заново в файлах следующего поколения. Сам file - короткий указатель на текущее поколение:
+// он никогда не отображается и подменяется атомарно, а отображённые файлы не переименовываются
+// и не перезаписываются. На Windows файл прежнего поколения нельзя удалить, пока его отображение
+// не собрано GC, - такие файлы удаляются при следующем открытии или сворачивании.
+// save() и flush() сбрасывают отображённые страницы на диск
+public class MappedTaskManager extends FileBackedTaskManager implements Closeable {
+    private static final String POINTER_PREFIX = "mapped,";
+
+    private MappedStore store;
+    // Пока менеджер не загружал и не закрывал хранилище, первое изменение создаёт его заново
+    private boolean fresh = true;
+
+    public MappedTaskManager(File file) {
+        super(file);
+    }
+
+    public static MappedTaskManager loadFromFile(File file) {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        manager.load();
+        return manager;
+    }
+
+    @Override
+    protected void load() {
+        fresh = false;
+        if (!file.exists() || file.length() == 0) return;
+        try {
+            long generation = readPointer();
+            store = MappedStore.open(file.toPath(), generation);
+            deleteStaleGenerations(generation);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+        restoreAll(List.of(store.readAll()));
+        taskIdCounter = Math.max(taskIdCounter, store.idCounter());
+        if (store.needsCompaction()) compact();
+    }
+
+    private MappedStore store() throws IOException {
+        if (store != null) return store;
+        Path path = file.toPath();
+        if (!fresh && file.length() > 0) {
+            store = MappedStore.open(path, readPointer());
+        } else {
+            store = MappedStore.create(path, 1, 0);
+            writePointer(1);
+            deleteStaleGenerations(1);
+        }
+        fresh = false;
+        return store;
+    }
+
+    private long readPointer() throws IOException {
+        String pointer = Files.readString(file.toPath()).strip();
+        if (!pointer.startsWith(POINTER_PREFIX)) {
+            throw new IOException("Неизвестный формат хранилища: " + file);
+        }
+        try {
+            return Long.parseLong(pointer.substring(POINTER_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Неизвестный формат хранилища: " + file, e);
+        }
+    }
+
+    private void writePointer(long generation) throws IOException {
+        Path temp = Path.of(file.getPath() + ".tmp");
+        Files.writeString(temp, POINTER_PREFIX + generation + "\n");
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Файлы других поколений остаются после сворачивания или сбоя между записью нового поколения
+    // и переключением указателя
+    private void deleteStaleGenerations(long current) throws IOException {
+        String records = file.getName() + ".records.";
+        String strings = file.getName() + ".strings.";
+        Path directory = file.getAbsoluteFile().toPath().getParent();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                String generation = name.startsWith(records) ? name.substring(records.length())
+                        : name.startsWith(strings) ? name.substring(strings.length()) : null;
+                if (generation == null || generation.equals(Long.toString(current))) continue;
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Ещё отображён (Windows): удалится в следующий раз
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void persistChange(Task task) {
+        write(List.of(task), List.of());
+    }
+
+    @Override
+    protected void persistRemoval(Task task) {
+        write(List.of(), List.of(task));
+    }
+
+    @Override
+    protected void persistClear(TaskType type) {
+        try {
+            store().removeAll(type);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+    }
+
+    @Override
+    protected void persistBatch(List<? extends Task> changed) {
+        write(changed, List.of());
+    }
+
+    @Override
+    protected void afterCommit(List<Task> changed, List<Task> removed) {
+        if (!changed.isEmpty() || !removed.isEmpty()) write(changed, removed);
+    }
+
+    // Удалённый эпик уносит записи своих подзадач: отдельных удалений для них не бывает
+    private void write(List<? extends Task> changed, List<? extends Task> removed) {
+        try {
+            MappedStore target = store();
+            for (Task task : removed) {
+                if (task instanceof Epic epic) epic.forEachSubtaskId(target::remove);
+                target.remove(task.getId());
+            }
+            for (Task task : changed) {
+                target.put(task);
+            }
+            target.setIdCounter(taskIdCounter);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+        if (store.needsCompaction()) compact();
+    }
+
+    // Новое поколение собирается из памяти рядом с прежним. Пока указатель не переключён,
+    // при открытии читается прежнее поколение целиком, после - целиком новое
+    private void compact() {
+        Path path = file.toPath();
+        MappedStore previous = store;
+        long generation = previous.generation() + 1;
+        try (MappedStore next = MappedStore.create(path, generation,
+                tasks.size() + epics.size() + subtasks.size())) {
+            for (Task task : tasks.values()) next.put(task);
+            for (Epic epic : epics.values()) next.put(epic);
+            for (Task subtask : subtasks.values()) next.put(subtask);
+            next.setIdCounter(taskIdCounter);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сворачивания хранилища", e);
+        }
+        try {
+            writePointer(generation);
+            previous.close();
+            store = MappedStore.open(path, generation);
+            deleteStaleGenerations(generation);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сворачивания хранилища", e);
+        }
+    }
+
+    @Override
+    protected void save() {
+        if (store != null) store.force();
+    }
+
+    public void flush() {
+        save();
+    }
+
+    @Override
+    public void close() {
+        if (store == null) return;
+        try {
+            store.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+        store = null;
+        fresh = false;
+    }
+}
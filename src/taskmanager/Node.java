@@ -6,6 +6,7 @@ public class Node {
     Task task;
     Node prev;
     Node next;
+    long viewedAt;
 
     public Node(Task task) {
         this.task = task;
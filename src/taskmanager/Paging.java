@@ -0,0 +1,58 @@
+package taskmanager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Выборка страницы обходом: копируется не больше limit элементов, а пропуск offset не копирует ничего
+final class Paging {
+    private Paging() {
+    }
+
+    static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Некорректная страница: offset=" + offset + ", limit=" + limit);
+        }
+    }
+
+    static <T> List<T> page(Iterator<T> iterator, int offset, int limit) {
+        checkPage(offset, limit);
+        for (int i = 0; i < offset && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        return take(iterator, limit);
+    }
+
+    // Страница последовательности head, затем rest; head == null - только rest
+    static <T> List<T> page(T head, Iterator<T> rest, int offset, int limit) {
+        if (head == null) return page(rest, offset, limit);
+        checkPage(offset, limit);
+        if (offset > 0) return page(rest, offset - 1, limit);
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        if (limit == 0) return result;
+        result.add(head);
+        result.addAll(take(rest, limit - 1));
+        return result;
+    }
+
+    // Страница сразу после задачи с данным id; если такой задачи в последовательности нет - пустая
+    static <T extends Task> List<T> after(Iterator<T> iterator, int id, int limit) {
+        checkPage(0, limit);
+        while (iterator.hasNext()) {
+            if (iterator.next().getId() == id) {
+                return take(iterator, limit);
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    static <T> List<T> take(Iterator<T> iterator, int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
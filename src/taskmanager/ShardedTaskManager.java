@@ -0,0 +1,328 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Снимок разложен по файлам каталога: tasks.csv - обычные задачи, epic-<id>.csv - эпик вместе
+// со своими подзадачами, manifest.csv - перечень файлов эпиков. Изменение переписывает только
+// затронутые файлы, поэтому правка подзадачи стоит столько, сколько весит её эпик, а не вся доска.
+// Каждый файл пишется во временный и атомарно подменяет прежний. Новый файл эпика появляется
+// раньше записи о нём в манифесте, а удаляется позже, так что манифест не ссылается на пустоту;
+// так же при переносе подзадачи файл нового эпика подменяется раньше файла прежнего.
+// При открытии файлы из манифеста разбираются параллельно
+public class ShardedTaskManager extends FileBackedTaskManager {
+    static final String MANIFEST = "manifest.csv";
+    static final String TASKS = "tasks.csv";
+
+    private final Shard taskShard = new Shard(0, TASKS);
+    private final IntHashMap<Shard> epicShards = new IntHashMap<>();
+    // Файл, в котором подзадача записана сейчас: после переноса в другой эпик прежний файл тоже переписывается
+    private final IntHashMap<Shard> subtaskShards = new IntHashMap<>();
+    private final Set<Shard> dirty = new LinkedHashSet<>();
+    private final List<Shard> dropped = new ArrayList<>();
+    // Для нового каталога манифест пишется при первом же сохранении
+    private boolean manifestChanged = true;
+
+    public ShardedTaskManager(File directory) {
+        super(directory);
+    }
+
+    public static ShardedTaskManager loadFromFile(File directory) {
+        return loadFromFile(directory, ForkJoinPool.commonPool());
+    }
+
+    public static ShardedTaskManager loadFromFile(File directory, ForkJoinPool pool) {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        manager.load(pool);
+        return manager;
+    }
+
+    @Override
+    protected void load() {
+        load(ForkJoinPool.commonPool());
+    }
+
+    private void load(ForkJoinPool pool) {
+        Path manifest = path(MANIFEST);
+        if (!Files.exists(manifest)) return;
+        List<Shard> shards = new ArrayList<>();
+        shards.add(taskShard);
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                int comma = line.indexOf(',');
+                shards.add(new Shard(Integer.parseInt(line.substring(0, comma)), line.substring(comma + 1)));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+
+        List<ForkJoinTask<List<Task>>> parts = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            parts.add(pool.submit(() -> read(shard)));
+        }
+        List<List<Task>> chunks = new ArrayList<>(parts.size());
+        for (ForkJoinTask<List<Task>> part : parts) {
+            chunks.add(part.join());
+        }
+        dropStaleSubtasks(shards, chunks);
+        restoreAll(chunks);
+
+        for (int i = 1; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            epicShards.put(shard.epicId, shard);
+            for (Task task : chunks.get(i)) {
+                if (task instanceof Subtask) {
+                    shard.subtaskIds.add(task.getId());
+                    subtaskShards.put(task.getId(), shard);
+                }
+            }
+        }
+        manifestChanged = false;
+    }
+
+    // При переносе файл нового эпика пишется раньше файла прежнего, поэтому после сбоя между ними
+    // подзадача записана в обоих. Строка подзадачи остаётся только в файле, изменённом позже
+    // (он написан последним) среди тех, чей эпик совпадает с её эпиком в строке. Файлы, из которых
+    // строки убраны, перепишутся при следующем сохранении
+    private void dropStaleSubtasks(List<Shard> shards, List<List<Task>> chunks) {
+        IntHashMap<Integer> owners = new IntHashMap<>();
+        for (int i = 1; i < shards.size(); i++) {
+            for (Task task : chunks.get(i)) {
+                if (!(task instanceof Subtask subtask) || subtask.getEpicId() != shards.get(i).epicId) continue;
+                Integer owner = owners.get(task.getId());
+                if (owner == null || modified(shards.get(i)).compareTo(modified(shards.get(owner))) >= 0) {
+                    owners.put(task.getId(), Integer.valueOf(i));
+                }
+            }
+        }
+        for (int i = 1; i < shards.size(); i++) {
+            int shard = i;
+            boolean changed = chunks.get(i).removeIf(task -> {
+                Integer owner = task instanceof Subtask ? owners.get(task.getId()) : null;
+                return owner != null && owner != shard;
+            });
+            if (changed) dirty.add(shards.get(i));
+        }
+    }
+
+    private FileTime modified(Shard shard) {
+        try {
+            return Files.getLastModifiedTime(path(shard.fileName));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+    }
+
+    // Файла обычных задач может не быть, пока ни одна не создана
+    private List<Task> read(Shard shard) {
+        List<Task> loaded = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path(shard.fileName), StandardCharsets.UTF_8)) {
+            if (reader.readLine() == null) return loaded;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                loaded.add(fromString(line));
+            }
+        } catch (NoSuchFileException e) {
+            if (shard != taskShard) throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+        return loaded;
+    }
+
+    @Override
+    protected void persistChange(Task task) {
+        markChanged(task);
+        flush();
+    }
+
+    @Override
+    protected void persistRemoval(Task task) {
+        markRemoved(task);
+        flush();
+    }
+
+    @Override
+    protected void persistClear(TaskType type) {
+        switch (type) {
+            case TASK -> dirty.add(taskShard);
+            case EPIC -> {
+                for (Shard shard : epicShards.values()) {
+                    dirty.remove(shard);
+                    dropped.add(shard);
+                }
+                epicShards.clear();
+                subtaskShards.clear();
+                manifestChanged = true;
+            }
+            case SUBTASK -> {
+                for (Shard shard : epicShards.values()) {
+                    shard.subtaskIds.clear();
+                    dirty.add(shard);
+                }
+                subtaskShards.clear();
+            }
+        }
+        flush();
+    }
+
+    @Override
+    protected void persistBatch(List<? extends Task> changed) {
+        changed.forEach(this::markChanged);
+        flush();
+    }
+
+    @Override
+    protected void afterCommit(List<Task> changed, List<Task> removed) {
+        removed.forEach(this::markRemoved);
+        changed.forEach(this::markChanged);
+        flush();
+    }
+
+    // Полная перезапись каталога
+    @Override
+    protected void save() {
+        dirty.add(taskShard);
+        for (Epic epic : epics.values()) {
+            dirty.add(epicShard(epic.getId()));
+        }
+        manifestChanged = true;
+        flush();
+    }
+
+    // Элемент, которого уже нет в менеджере (создан и удалён в одной транзакции), пропускается
+    private void markChanged(Task task) {
+        switch (task) {
+            case Subtask subtask -> {
+                if (!subtasks.containsKey(subtask.getId()) || !epics.containsKey(subtask.getEpicId())) return;
+                Shard shard = epicShard(subtask.getEpicId());
+                Shard previous = subtaskShards.put(subtask.getId(), shard);
+                shard.subtaskIds.add(subtask.getId());
+                dirty.add(shard);
+                // Прежний файл переписывается после нового: сбой между ними оставит подзадачу
+                // в обоих файлах (это разбирает загрузка), а не потеряет её
+                if (previous != null && previous != shard) {
+                    previous.subtaskIds.remove(subtask.getId());
+                    dirty.remove(previous);
+                    dirty.add(previous);
+                }
+            }
+            case Epic epic -> {
+                if (epics.containsKey(epic.getId())) dirty.add(epicShard(epic.getId()));
+            }
+            default -> {
+                if (tasks.containsKey(task.getId())) dirty.add(taskShard);
+            }
+        }
+    }
+
+    private void markRemoved(Task task) {
+        switch (task) {
+            case Subtask subtask -> {
+                Shard shard = subtaskShards.remove(subtask.getId());
+                if (shard == null) return;
+                shard.subtaskIds.remove(subtask.getId());
+                dirty.add(shard);
+            }
+            case Epic epic -> {
+                Shard shard = epicShards.remove(epic.getId());
+                if (shard == null) return;
+                shard.subtaskIds.forEach(subtaskShards::remove);
+                dirty.remove(shard);
+                dropped.add(shard);
+                manifestChanged = true;
+            }
+            default -> dirty.add(taskShard);
+        }
+    }
+
+    private Shard epicShard(int epicId) {
+        Shard shard = epicShards.get(epicId);
+        if (shard == null) {
+            shard = new Shard(epicId, "epic-" + epicId + ".csv");
+            epicShards.put(epicId, shard);
+            manifestChanged = true;
+        }
+        return shard;
+    }
+
+    private void flush() {
+        try {
+            Files.createDirectories(file.toPath());
+            for (Shard shard : dirty) {
+                replace(path(shard.fileName), shard == taskShard ? tasksText() : epicText(shard));
+            }
+            if (manifestChanged) replace(path(MANIFEST), manifestText());
+            for (Shard shard : dropped) {
+                Files.deleteIfExists(path(shard.fileName));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+        dirty.clear();
+        dropped.clear();
+        manifestChanged = false;
+    }
+
+    private void replace(Path target, String text) throws IOException {
+        Path temp = Path.of(target + ".tmp");
+        Files.writeString(temp, text);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String tasksText() {
+        StringBuilder builder = new StringBuilder(HEADER);
+        tasks.values().forEach(t -> builder.append(toString(t)).append("\n"));
+        return builder.toString();
+    }
+
+    private String epicText(Shard shard) {
+        StringBuilder builder = new StringBuilder(HEADER);
+        builder.append(toString(epics.get(shard.epicId))).append("\n");
+        shard.subtaskIds.forEach(id -> builder.append(toString(subtasks.get(id))).append("\n"));
+        return builder.toString();
+    }
+
+    private String manifestText() {
+        StringBuilder builder = new StringBuilder("epic,file\n");
+        epicShards.values().forEach(s -> builder.append(s.epicId).append(',').append(s.fileName).append("\n"));
+        return builder.toString();
+    }
+
+    private Path path(String name) {
+        return file.toPath().resolve(name);
+    }
+
+    private static final class Shard {
+        final int epicId;
+        final String fileName;
+        // Порядок подзадач в файле эпика - порядок их появления в нём
+        final IntLinkedSet subtaskIds = new IntLinkedSet();
+
+        Shard(int epicId, String fileName) {
+            this.epicId = epicId;
+            this.fileName = fileName;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package taskmanager;
+
+// CSV - читаемый текстовый снимок, BINARY - компактный двоичный (см. BinarySnapshot)
+public enum SnapshotFormat {
+    CSV,
+    BINARY
+}
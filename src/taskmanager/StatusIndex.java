@@ -0,0 +1,73 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Вторичный индекс по статусу отдельно для каждого типа. Статус, под которым задача лежит в индексе,
+// запоминается по id: вызывающий мог уже поменять статус в самом объекте, а убрать запись
+// нужно из прежней корзины
+final class StatusIndex {
+    private final Map<TaskType, Buckets> byType = new EnumMap<>(TaskType.class);
+
+    StatusIndex() {
+        for (TaskType type : TaskType.values()) {
+            byType.put(type, new Buckets());
+        }
+    }
+
+    static TaskType typeOf(Task task) {
+        if (task instanceof Epic) return TaskType.EPIC;
+        if (task instanceof Subtask) return TaskType.SUBTASK;
+        return TaskType.TASK;
+    }
+
+    // Добавляет задачу или переносит её в корзину текущего статуса
+    void put(Task task) {
+        if (task == null) return;
+        TaskType type = typeOf(task);
+        Status status = task.getStatus();
+        Buckets buckets = byType.get(type);
+        if (status == null || buckets.indexed.get(task.getId()) != status) {
+            remove(type, task.getId());
+            if (status == null) return;
+            buckets.indexed.put(task.getId(), status);
+        }
+        buckets.byStatus.get(status).put(task.getId(), task);
+    }
+
+    void remove(TaskType type, int id) {
+        Buckets buckets = byType.get(type);
+        Status previous = buckets.indexed.remove(id);
+        if (previous != null) buckets.byStatus.get(previous).remove(id);
+    }
+
+    void clear(TaskType type) {
+        byType.put(type, new Buckets());
+    }
+
+    List<Task> get(Status status, TaskType type) {
+        return new ArrayList<>(byType.get(type).byStatus.get(status).values());
+    }
+
+    int count(Status status, TaskType type) {
+        return byType.get(type).byStatus.get(status).size();
+    }
+
+    private static final class Buckets {
+        private final IntHashMap<Status> indexed = new IntHashMap<>();
+        private final Map<Status, IntHashMap<Task>> byStatus = new EnumMap<>(Status.class);
+
+        private Buckets() {
+            for (Status status : Status.values()) {
+                byStatus.put(status, new IntHashMap<>());
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package taskmanager;
+
+import java.util.Arrays;
+
+// Строки подряд в одном массиве char: строка - это смещение и длина, отдельных объектов нет.
+// Перезапись строки дописывает новую в конец, старое место копится как мусор,
+// пока владелец смещений не соберёт живые строки в новую арену
+final class StringArena {
+    private char[] data;
+    private int used;
+    private int garbage;
+
+    StringArena(int capacity) {
+        data = new char[Math.max(16, capacity)];
+    }
+
+    // Смещение добавленной строки
+    int add(String value) {
+        int length = value.length();
+        if (length > data.length - used) grow(length);
+        value.getChars(0, length, data, used);
+        int offset = used;
+        used += length;
+        return offset;
+    }
+
+    // Переносит строку из другой арены без промежуточного String
+    int copy(StringArena source, int offset, int length) {
+        if (length > data.length - used) grow(length);
+        System.arraycopy(source.data, offset, data, used, length);
+        int copied = used;
+        used += length;
+        return copied;
+    }
+
+    String get(int offset, int length) {
+        return new String(data, offset, length);
+    }
+
+    // Сравнивает строку в арене с value, не создавая String
+    boolean matches(int offset, int length, String value) {
+        if (value.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    void release(int length) {
+        garbage += length;
+    }
+
+    int live() {
+        return used - garbage;
+    }
+
+    // Больше половины занятого места приходится на перезаписанные строки
+    boolean isMostlyGarbage() {
+        return garbage > 1024 && garbage > used / 2;
+    }
+
+    private void grow(int length) {
+        long needed = (long) used + length;
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Арена строк переполнена");
+        }
+        data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, data.length * 2L)));
+    }
+}
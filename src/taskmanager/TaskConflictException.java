@@ -0,0 +1,8 @@
+package taskmanager;
+
+// Изменение внутри транзакции отклонено из-за пересечения по времени; транзакция откатывается
+public class TaskConflictException extends RuntimeException {
+    public TaskConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,15 +1,60 @@
 package taskmanager;
 
 import tasks.Epic;
+import tasks.Status;
 import tasks.Subtask;
 import tasks.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TaskManager {
     List<Task> getPrioritizedTasks();
 
+    // Страница списка по приоритету; реализации выбирают её без копирования всего списка
+    default List<Task> getPrioritizedTasks(int offset, int limit) {
+        return Paging.page(getPrioritizedTasks().iterator(), offset, limit);
+    }
+
+    // Курсор для постраничного обхода: задачи, идущие по приоритету после задачи с данным id
+    default List<Task> getPrioritizedTasksAfter(int id, int limit) {
+        return Paging.after(getPrioritizedTasks().iterator(), id, limit);
+    }
+
+    // Задачи и подзадачи, пересекающиеся с [from, to), в порядке приоритета.
+    // При from == to полуинтервал пуст, и список тоже: задача, идущая в момент from, в него не входит
+    default List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        return getTasksInRange(from, to, 0, Integer.MAX_VALUE);
+    }
+
+    default List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        TimeIntervalIndex.checkRange(from, to);
+        if (!from.isBefore(to)) return new ArrayList<>();
+        return Paging.page(getPrioritizedTasks().stream()
+                .filter(task -> TimeIntervalIndex.overlapsRange(task, from, to))
+                .iterator(), offset, limit);
+    }
+
+    // Самое раннее начало не раньше after, с которого задача длины duration не пересечётся с расписанием
+    default LocalDateTime findEarliestFreeSlot(Duration duration, LocalDateTime after) {
+        TimeIntervalIndex.checkSlot(duration, after);
+        TimeIntervalIndex index = new TimeIntervalIndex();
+        for (Task task : getPrioritizedTasks()) {
+            if (task.getEndTime() != null) index.add(task.getId(), task.getStartTime(), task.getEndTime());
+        }
+        return index.findFreeSlot(duration, after);
+    }
+
+    // Расставляет задачи и подзадачи без времени начала (но с длительностью) по свободным промежуткам
+    // начиная с after, в порядке коллекции: каждая занимает самый ранний подходящий промежуток,
+    // в том числе оставшийся перед уже расставленными. Все задачи получают время одной транзакцией:
+    // либо запланированы все, либо ни одна. Возвращает сохранённые в менеджере объекты
+    List<Task> autoSchedule(Collection<? extends Task> items, LocalDateTime after);
+
     ArrayList<Task> getAllTasks();
 
     void deleteAllTasks();
@@ -48,5 +93,55 @@ public interface TaskManager {
 
     void deleteSubtaskById(int id);
 
+    // Пакетные операции: результат по каждому элементу в порядке входа, null - элемент отклонён
+    // (пересечение по времени, нет эпика или нет такой задачи). Эпики пересчитываются по разу.
+    List<Task> createTasks(Collection<? extends Task> batch);
+
+    List<Subtask> createSubtasks(Collection<? extends Subtask> batch);
+
+    List<Task> updateAll(Collection<? extends Task> batch);
+
+    // Выполняет work как одно изменение: сохранение и пересчёт эпиков - по разу при фиксации,
+    // а при пересечении по времени или любом исключении всё сделанное внутри откатывается
+    void inTransaction(Consumer<TaskManager> work);
+
+    // Выборка по статусу внутри одного типа. Реализации с вторичным индексом отвечают
+    // за время, пропорциональное размеру результата, а счётчик - за O(1)
+    default List<Task> getByStatus(Status status, TaskType type) {
+        List<? extends Task> all = switch (type) {
+            case TASK -> getAllTasks();
+            case EPIC -> getAllEpics();
+            case SUBTASK -> getAllSubtasks();
+        };
+        List<Task> result = new ArrayList<>();
+        for (Task task : all) {
+            if (task.getStatus() == status) result.add(task);
+        }
+        return result;
+    }
+
+    default int countByStatus(Status status, TaskType type) {
+        return getByStatus(status, type).size();
+    }
+
+    // Поиск по словам имени и описания: каждое слово запроса - префикс, нужны все слова.
+    // Возвращает id не больше limit задач любого типа, самые релевантные первыми.
+    // Реализация по умолчанию строит индекс заново на каждый запрос
+    default List<Integer> search(String query, int limit) {
+        TextIndex index = new TextIndex();
+        getAllTasks().forEach(index::put);
+        getAllEpics().forEach(index::put);
+        getAllSubtasks().forEach(index::put);
+        return index.search(query, limit);
+    }
+
     List<Task> getHistory();
+
+    default List<Task> getHistory(int offset, int limit) {
+        return Paging.page(getHistory().iterator(), offset, limit);
+    }
+
+    default List<Task> getHistoryAfter(int id, int limit) {
+        return Paging.after(getHistory().iterator(), id, limit);
+    }
 }
\ No newline at end of file
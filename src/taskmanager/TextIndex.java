@@ -0,0 +1,126 @@
+package taskmanager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// Обратный индекс по словам имени и описания. Слова хранятся в отсортированном словаре,
+// поэтому поиск по префиксу просматривает только подходящие слова, а не все задачи.
+// Нормализация: нижний регистр, ё -> е; словом считается непрерывная последовательность букв и цифр
+final class TextIndex {
+    private static final int EXACT_WEIGHT = 2;
+    private static final int PREFIX_WEIGHT = 1;
+
+    // слово -> (id -> число вхождений в имени и описании)
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Indexed> indexed = new HashMap<>();
+
+    // Переиндексирует задачу, если её текст изменился с прошлого раза
+    void put(Task task) {
+        if (task == null) return;
+        Indexed previous = indexed.get(task.getId());
+        if (previous != null && Objects.equals(previous.name, task.getName())
+                && Objects.equals(previous.description, task.getDescription())) {
+            return;
+        }
+        remove(task.getId());
+        Map<String, Integer> counts = new HashMap<>();
+        for (String term : tokenize(task.getName())) counts.merge(term, 1, Integer::sum);
+        for (String term : tokenize(task.getDescription())) counts.merge(term, 1, Integer::sum);
+        counts.forEach((term, count) -> postings.computeIfAbsent(term, key -> new HashMap<>()).put(task.getId(), count));
+        indexed.put(task.getId(), new Indexed(task.getName(), task.getDescription(), new ArrayList<>(counts.keySet())));
+    }
+
+    void remove(int id) {
+        Indexed previous = indexed.remove(id);
+        if (previous == null) return;
+        for (String term : previous.terms) {
+            Map<Integer, Integer> ids = postings.get(term);
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(term);
+        }
+    }
+
+    // Каждое слово запроса - префикс; задача должна подходить под все слова запроса.
+    // Ранг - сумма вхождений подходящих слов, точное совпадение весит вдвое больше префиксного.
+    // При равном ранге раньше идёт меньший id
+    List<Integer> search(String query, int limit) {
+        Paging.checkPage(0, limit);
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit == 0) return new ArrayList<>();
+
+        Map<Integer, Integer> scores = null;
+        for (String term : terms) {
+            Map<Integer, Integer> previous = scores;
+            Map<Integer, Integer> matched = match(term, previous);
+            if (matched.isEmpty()) return new ArrayList<>();
+            if (previous != null) matched.replaceAll((id, score) -> score + previous.get(id));
+            scores = matched;
+        }
+        return top(scores, limit);
+    }
+
+    // candidates == null - первое слово запроса, подходит любая задача
+    private Map<Integer, Integer> match(String prefix, Map<Integer, Integer> candidates) {
+        Map<Integer, Integer> matched = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Integer>> entry : prefixRange(prefix).entrySet()) {
+            int weight = entry.getKey().length() == prefix.length() ? EXACT_WEIGHT : PREFIX_WEIGHT;
+            entry.getValue().forEach((id, count) -> {
+                if (candidates == null || candidates.containsKey(id)) matched.merge(id, count * weight, Integer::sum);
+            });
+        }
+        return matched;
+    }
+
+    private Map<String, Map<Integer, Integer>> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static List<Integer> top(Map<Integer, Integer> scores, int limit) {
+        PriorityQueue<Map.Entry<Integer, Integer>> heap = new PriorityQueue<>(
+                (a, b) -> a.getValue().equals(b.getValue())
+                        ? Integer.compare(b.getKey(), a.getKey())
+                        : Integer.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) heap.poll();
+        }
+        List<Integer> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) return terms;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(normalize(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static String normalize(String word) {
+        return word.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private record Indexed(String name, String description, List<String> terms) {
+    }
+}
@@ -0,0 +1,166 @@
+package taskmanager;
+
+import tasks.Minutes;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Интервалы хранятся числами (минута от эпохи и наносекунды внутри неё), а не объектами LocalDateTime:
+// индекс держит по записи на каждую задачу в расписании
+class TimeIntervalIndex {
+    private final NavigableSet<Slot> byStart = new TreeSet<>(Slot::compareStart);
+    private final IntHashMap<Slot> byId = new IntHashMap<>();
+    // Промежуток перед первым интервалом каждой занятой минуты. Перед остальными интервалами
+    // той же минуты промежутка нет: предыдущий интервал кончается в этой же минуте
+    private final GapTree gaps = new GapTree();
+
+    // Интервалы в индексе попарно не пересекаются, поэтому отсортированы и по началу, и по концу:
+    // достаточно проверить последний интервал, который начинается не позже конца нового.
+    boolean overlaps(int id, LocalDateTime start, LocalDateTime end) {
+        Slot slot = byStart.floor(Slot.probe(end));
+        if (slot != null && slot.id == id) {
+            slot = byStart.lower(slot);
+        }
+        return slot != null && slot.compareEnd(start) >= 0;
+    }
+
+    // Интервал, который начался раньше at и ещё не закончился; такой может быть только один.
+    // -1, если его нет
+    int coveringId(LocalDateTime at) {
+        Slot slot = byStart.lower(Slot.probe(at));
+        return slot != null && slot.compareEnd(at) > 0 ? slot.id : -1;
+    }
+
+    // Самое раннее начало не раньше after, с которого интервал длины duration ни с чем не пересекается.
+    // Стык тоже считается пересечением, поэтому после занятого интервала слот начинается
+    // со следующей целой минуты. Кроме промежутка сразу после after все кандидаты начинаются
+    // после какого-то интервала, их ищет дерево промежутков
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime after) {
+        LocalDateTime start = after;
+        Slot last = byStart.floor(Slot.probe(after));
+        if (last != null && last.compareEnd(after) >= 0) start = minuteAfter(last.end());
+        Slot next = last == null ? (byStart.isEmpty() ? null : byStart.first()) : byStart.higher(last);
+        if (next == null || next.compareStart(start.plus(duration)) > 0) return start;
+        long minute = gaps.first(next.startMinute, GapTree.nanos(duration));
+        if (minute == GapTree.NONE) return minuteAfter(byStart.last().end());
+        return minuteAfter(byStart.lower(firstIn(minute)).end());
+    }
+
+    // Первая целая минута строго после end: ближайшее начало, которое не стыкуется с end
+    static LocalDateTime minuteAfter(LocalDateTime end) {
+        return end.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+    }
+
+    // Пересекается ли задача с полуинтервалом [from, to); задача без длительности - точка в момент начала
+    static boolean overlapsRange(Task task, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null || !start.isBefore(to)) return false;
+        LocalDateTime end = task.getEndTime();
+        return !start.isBefore(from) || end != null && end.isAfter(from);
+    }
+
+    static void checkSlot(Duration duration, LocalDateTime after) {
+        if (duration == null || after == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Некорректный запрос слота: " + duration + " после " + after);
+        }
+    }
+
+    static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Некорректный интервал: " + from + " - " + to);
+        }
+    }
+
+    void add(int id, LocalDateTime start, LocalDateTime end) {
+        remove(id);
+        Slot slot = new Slot(id, start, end);
+        byStart.add(slot);
+        byId.put(id, slot);
+        refreshGaps(slot);
+    }
+
+    void remove(int id) {
+        Slot slot = byId.remove(id);
+        if (slot != null) {
+            byStart.remove(slot);
+            refreshGaps(slot);
+        }
+    }
+
+    void clear() {
+        byStart.clear();
+        byId.clear();
+        gaps.clear();
+    }
+
+    // Добавление или удаление интервала меняет промежуток его минуты и минуты следующего за ним
+    private void refreshGaps(Slot changed) {
+        refreshGap(changed.startMinute);
+        Slot following = byStart.higher(changed);
+        if (following != null) refreshGap(following.startMinute);
+    }
+
+    private void refreshGap(long minute) {
+        Slot first = firstIn(minute);
+        Slot previous = first == null ? null : byStart.lower(first);
+        if (previous == null) {
+            gaps.remove(minute);
+        } else {
+            gaps.put(minute, GapTree.gapNanos(previous.endMinute + 1, first.startMinute, first.startNanos));
+        }
+    }
+
+    // Первый интервал, начавшийся в минуту minute, или null
+    private Slot firstIn(long minute) {
+        Slot first = byStart.ceiling(Slot.probe(Minutes.toDateTime(minute)));
+        return first != null && first.startMinute == minute ? first : null;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    private static final class Slot {
+        private final int id;
+        private final long startMinute;
+        private final long startNanos;
+        private final long endMinute;
+        private final long endNanos;
+
+        private Slot(int id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.startMinute = Minutes.of(start);
+            this.startNanos = Minutes.nanosOfMinute(start);
+            this.endMinute = Minutes.of(end);
+            this.endNanos = Minutes.nanosOfMinute(end);
+        }
+
+        // Граница поиска: начинается и заканчивается в момент at
+        private static Slot probe(LocalDateTime at) {
+            return new Slot(-1, at, at);
+        }
+
+        private int compareStart(Slot other) {
+            int cmp = Long.compare(startMinute, other.startMinute);
+            return cmp != 0 ? cmp : Long.compare(startNanos, other.startNanos);
+        }
+
+        private int compareStart(LocalDateTime time) {
+            int cmp = Long.compare(startMinute, Minutes.of(time));
+            return cmp != 0 ? cmp : Long.compare(startNanos, Minutes.nanosOfMinute(time));
+        }
+
+        private int compareEnd(LocalDateTime time) {
+            int cmp = Long.compare(endMinute, Minutes.of(time));
+            return cmp != 0 ? cmp : Long.compare(endNanos, Minutes.nanosOfMinute(time));
+        }
+
+        private LocalDateTime end() {
+            return Minutes.toDateTime(endMinute, endNanos);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Состояние открытой транзакции: снимки задач до первого изменения в ней и эпики,
+// пересчёт которых отложен до фиксации
+final class TransactionLog {
+    final int idCounter;
+    final Map<Integer, Image> images = new LinkedHashMap<>();
+    final Set<Integer> deferredEpics = new LinkedHashSet<>();
+
+    TransactionLog(int idCounter) {
+        this.idCounter = idCounter;
+    }
+
+    // Запоминается только первое состояние: повторные изменения той же задачи снимок не трогают
+    void remember(int id, TaskType type, Task current) {
+        if (!images.containsKey(id)) images.put(id, Image.of(type, current));
+    }
+
+    // ref == null - до транзакции задачи не было
+    record Image(TaskType type, Task ref, String name, String description, Status status,
+                 LocalDateTime startTime, Duration duration, List<Integer> subtaskIds, int epicId) {
+        static Image of(TaskType type, Task task) {
+            if (task == null) return new Image(type, null, null, null, null, null, null, null, 0);
+            List<Integer> subtaskIds = task instanceof Epic epic ? epic.getSubtaskIds() : null;
+            int epicId = task instanceof Subtask subtask ? subtask.getEpicId() : 0;
+            return new Image(type, task, task.getName(), task.getDescription(), task.getStatus(),
+                    task.getStartTime(), task.getDuration(), subtaskIds, epicId);
+        }
+
+        // Возвращает прежние значения полей в тот же объект: на него могут ссылаться вызывающие
+        void restoreFields() {
+            ref.setName(name);
+            ref.setDescription(description);
+            ref.setStatus(status);
+            if (!(ref instanceof Epic)) {
+                ref.setStartTime(startTime);
+                ref.setDuration(duration);
+            }
+            if (ref instanceof Subtask subtask) subtask.setEpicId(epicId);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package taskmanager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Отложенная запись: изменение только помечает менеджер грязным, а фоновый поток записывает
+// весь снимок одним save() - не позже maxLatency после первого несохранённого изменения
+// или сразу, как только их накопилось maxPendingOps. flush() и close() дожидаются записи на диск.
+// Сам менеджер по-прежнему рассчитан на один вызывающий поток; блокировка нужна только затем,
+// чтобы фоновый поток отрисовал снимок в память между изменениями, а не посреди них: эпики
+// меняются на месте, поэтому ссылки на объекты за пределы блокировки не выходят, только байты.
+// Вне блокировки идёт лишь запись на диск.
+public class WriteBehindTaskManager extends FileBackedTaskManager implements Closeable {
+    public static final Duration DEFAULT_MAX_LATENCY = Duration.ofMillis(200);
+    public static final int DEFAULT_MAX_PENDING_OPS = 1000;
+
+    private final long maxLatencyNanos;
+    private final int maxPendingOps;
+    // Запись снимков идёт строго по очереди: копия, снятая позже, не может оказаться на диске раньше
+    private final Object writeLock = new Object();
+
+    private int pendingOps;
+    private long firstPendingAt;
+    private CompletableFuture<Void> nextWrite = new CompletableFuture<>();
+    private CompletableFuture<Void> inFlight;
+    private Thread flusher;
+    private boolean closed;
+
+    public WriteBehindTaskManager(File file) {
+        this(file, SnapshotFormat.CSV, DEFAULT_MAX_LATENCY, DEFAULT_MAX_PENDING_OPS);
+    }
+
+    public WriteBehindTaskManager(File file, Duration maxLatency, int maxPendingOps) {
+        this(file, SnapshotFormat.CSV, maxLatency, maxPendingOps);
+    }
+
+    public WriteBehindTaskManager(File file, SnapshotFormat format, Duration maxLatency, int maxPendingOps) {
+        super(file, format);
+        if (maxLatency.isNegative() || maxPendingOps <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры отложенной записи");
+        }
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.maxPendingOps = maxPendingOps;
+    }
+
+    public static WriteBehindTaskManager loadFromFile(File file, SnapshotFormat format,
+                                                      Duration maxLatency, int maxPendingOps) {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, format, maxLatency, maxPendingOps);
+        manager.load();
+        return manager;
+    }
+
+    @Override
+    protected void persistChange(Task task) {
+        markDirty(1);
+    }
+
+    @Override
+    protected void persistRemoval(Task task) {
+        markDirty(1);
+    }
+
+    @Override
+    protected void persistClear(TaskType type) {
+        markDirty(1);
+    }
+
+    @Override
+    protected void persistBatch(List<? extends Task> changed) {
+        markDirty(changed.size());
+    }
+
+    @Override
+    protected void afterCommit(List<Task> changed, List<Task> removed) {
+        if (!changed.isEmpty() || !removed.isEmpty()) markDirty(changed.size() + removed.size());
+    }
+
+    // Вызывается под блокировкой менеджера из переопределённых методов изменения
+    private void markDirty(int ops) {
+        if (closed) {
+            save();
+            return;
+        }
+        if (pendingOps == 0) firstPendingAt = System.nanoTime();
+        pendingOps += ops;
+        if (flusher == null) {
+            flusher = new Thread(this::runFlusher, "write-behind-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        if (pendingOps == ops || pendingOps >= maxPendingOps) notifyAll();
+    }
+
+    // Завершится, когда на диске окажутся все изменения, сделанные до этого вызова
+    public synchronized CompletableFuture<Void> pendingWrite() {
+        if (pendingOps > 0) return nextWrite;
+        return inFlight != null ? inFlight : CompletableFuture.completedFuture(null);
+    }
+
+    public synchronized int getPendingOps() {
+        return pendingOps;
+    }
+
+    // Запись, начатая фоновым потоком, к этому моменту уже закончена: writeLock занят ею
+    public void flush() {
+        synchronized (writeLock) {
+            CompletableFuture<Void> written;
+            synchronized (this) {
+                if (pendingOps == 0) return;
+                written = nextWrite;
+            }
+            writePending();
+            try {
+                written.join();
+            } catch (CompletionException e) {
+                throw (ManagerSaveException) e.getCause();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            thread = flusher;
+            notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    private void runFlusher() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (!closed && !dueForWrite()) {
+                        if (pendingOps == 0) {
+                            wait();
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(this, firstPendingAt + maxLatencyNanos - System.nanoTime());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) return;
+            }
+            // Ошибка записи уже передана ожидающим через future; повтор будет по следующему сроку
+            writePending();
+        }
+    }
+
+    private boolean dueForWrite() {
+        return pendingOps > 0 && (pendingOps >= maxPendingOps
+                || System.nanoTime() - firstPendingAt >= maxLatencyNanos);
+    }
+
+    private void writePending() {
+        synchronized (writeLock) {
+            byte[] snapshot;
+            CompletableFuture<Void> written;
+            synchronized (this) {
+                if (pendingOps == 0) return;
+                snapshot = renderSnapshot(format, tasks.values(), epics.values(), subtasks.values());
+                written = nextWrite;
+                nextWrite = new CompletableFuture<>();
+                inFlight = written;
+                pendingOps = 0;
+            }
+            try {
+                writeAtomically(snapshot);
+                written.complete(null);
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (pendingOps++ == 0) firstPendingAt = System.nanoTime();
+                }
+                written.completeExceptionally(new ManagerSaveException("Ошибка сохранения в файл", e));
+            } finally {
+                synchronized (this) {
+                    inFlight = null;
+                }
+            }
+        }
+    }
+
+    private void writeAtomically(byte[] snapshot) throws IOException {
+        Path temp = Path.of(file.getPath() + ".tmp");
+        Files.write(temp, snapshot);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized Task createTask(Task task) {
+        return super.createTask(task);
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        super.updateTask(task);
+    }
+
+    @Override
+    public synchronized void deleteTaskById(int id) {
+        super.deleteTaskById(id);
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        super.deleteAllTasks();
+    }
+
+    @Override
+    public synchronized Epic createEpic(Epic epic) {
+        return super.createEpic(epic);
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        super.updateEpic(epic);
+    }
+
+    @Override
+    public synchronized void deleteEpicById(int id) {
+        super.deleteEpicById(id);
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        super.deleteAllEpics();
+    }
+
+    @Override
+    public synchronized Subtask createSubtask(Subtask subtask) {
+        return super.createSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        super.updateSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(int id) {
+        super.deleteSubtaskById(id);
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        super.deleteAllSubtasks();
+    }
+
+    @Override
+    public synchronized List<Task> createTasks(Collection<? extends Task> batch) {
+        return super.createTasks(batch);
+    }
+
+    @Override
+    public synchronized List<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        return super.createSubtasks(batch);
+    }
+
+    @Override
+    public synchronized List<Task> updateAll(Collection<? extends Task> batch) {
+        return super.updateAll(batch);
+    }
+
+    @Override
+    public synchronized List<Task> autoSchedule(Collection<? extends Task> items, LocalDateTime after) {
+        return super.autoSchedule(items, after);
+    }
+
+    @Override
+    public synchronized void inTransaction(Consumer<TaskManager> work) {
+        super.inTransaction(work);
+    }
+}
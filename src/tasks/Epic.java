@@ -4,21 +4,36 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Objects;
+import java.util.function.IntConsumer;
+import taskmanager.IntLinkedSet;
 import taskmanager.TaskManager;
 
 public class Epic extends Task {
-    private final ArrayList<Integer> subtaskIds = new ArrayList<>();
-    private LocalDateTime endTime;
+    private final IntLinkedSet subtaskIds = new IntLinkedSet();
+    private final EpicAggregate aggregate = new EpicAggregate();
+    private long endMinute = Minutes.NONE;
+    private LocalDateTime preciseEnd;
 
     public Epic(String name, String description) {
         super(name, description, Status.NEW);
-        this.duration = Duration.ZERO;
-        this.startTime = null;
-        this.endTime = null;
+        durationMinutes = 0;
     }
 
+    // Копия в порядке добавления; обойти подзадачи без копирования можно через forEachSubtaskId
     public ArrayList<Integer> getSubtaskIds() {
-        return subtaskIds;
+        return subtaskIds.toList();
+    }
+
+    public void forEachSubtaskId(IntConsumer action) {
+        subtaskIds.forEach(action);
+    }
+
+    public boolean hasSubtaskId(int subtaskId) {
+        return subtaskIds.contains(subtaskId);
+    }
+
+    public int getSubtaskCount() {
+        return subtaskIds.size();
     }
 
     public void addSubtaskId(int subtaskId) {
@@ -30,31 +45,70 @@ public class Epic extends Task {
     }
 
     public void removeSubtaskId(int subtaskId) {
-        subtaskIds.remove((Integer) subtaskId);
+        subtaskIds.remove(subtaskId);
+        aggregate.remove(subtaskId);
+    }
+
+    public void clearSubtaskIds() {
+        subtaskIds.clear();
+        aggregate.clear();
+    }
+
+    public void trackSubtask(Subtask subtask) {
+        if (subtask.getId() == this.id) return;
+        aggregate.put(subtask);
+    }
+
+    public boolean isTrackingSubtask(int subtaskId) {
+        return aggregate.contains(subtaskId);
+    }
+
+    public Status getSubtasksStatus() {
+        return aggregate.status();
+    }
+
+    public Duration getSubtasksDuration() {
+        return aggregate.duration();
+    }
+
+    public LocalDateTime getSubtasksStartTime() {
+        return aggregate.startTime();
+    }
+
+    public LocalDateTime getSubtasksEndTime() {
+        return aggregate.endTime();
     }
 
     public void setEndTime(LocalDateTime endTime) {
-        this.endTime = endTime;
+        this.endMinute = Minutes.of(endTime);
+        this.preciseEnd = endTime == null || Minutes.isWhole(endTime) ? null : endTime;
+    }
+
+    void setEndMinute(long endMinute) {
+        this.endMinute = endMinute;
+        this.preciseEnd = null;
+    }
+
+    // Переносит в эпик накопленные по подзадачам статус и время
+    public void applySubtaskTotals() {
+        setStatus(aggregate.status());
+        aggregate.applyTimesTo(this);
     }
 
     @Override
     public LocalDateTime getEndTime() {
-        return endTime;
+        return preciseEnd != null ? preciseEnd : Minutes.toDateTime(endMinute);
     }
 
     public Duration calculateDuration(TaskManager manager) {
-        return subtaskIds.stream()
-                .map(manager::getSubtaskById)
-                .filter(Objects::nonNull)
+        return manager.getSubtasksByEpicId(id).stream()
                 .map(Task::getDuration)
                 .filter(Objects::nonNull)
                 .reduce(Duration.ZERO, Duration::plus);
     }
 
     public LocalDateTime calculateStartTime(TaskManager manager) {
-        return subtaskIds.stream()
-                .map(manager::getSubtaskById)
-                .filter(Objects::nonNull)
+        return manager.getSubtasksByEpicId(id).stream()
                 .map(Task::getStartTime)
                 .filter(Objects::nonNull)
                 .min(LocalDateTime::compareTo)
@@ -62,9 +116,7 @@ public class Epic extends Task {
     }
 
     public LocalDateTime calculateEndTime(TaskManager manager) {
-        return subtaskIds.stream()
-                .map(manager::getSubtaskById)
-                .filter(Objects::nonNull)
+        return manager.getSubtasksByEpicId(id).stream()
                 .map(Task::getEndTime)
                 .filter(Objects::nonNull)
                 .max(LocalDateTime::compareTo)
@@ -84,9 +136,9 @@ public class Epic extends Task {
                 ", id=" + id +
                 ", status=" + status +
                 ", subtaskIds=" + subtaskIds +
-                ", startTime=" + startTime +
-                ", duration=" + duration +
-                ", endTime=" + endTime +
+                ", startTime=" + getStartTime() +
+                ", duration=" + getDuration() +
+                ", endTime=" + getEndTime() +
                 '}';
     }
 }
\ No newline at end of file
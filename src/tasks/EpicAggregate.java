@@ -0,0 +1,176 @@
+package tasks;
+
+import taskmanager.IntHashMap;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+// Накопленные по подзадачам эпика значения: при изменении одной подзадачи
+// вычитается её прежний вклад и добавляется новый, без обхода остальных.
+// Моменты, кратные минуте, учитываются номерами минут; остальные - как есть, отдельными счётчиками
+class EpicAggregate {
+    private final IntHashMap<Contribution> contributions = new IntHashMap<>();
+    private final int[] statusCounts = new int[Status.values().length];
+    private final TreeMap<Long, Integer> startMinutes = new TreeMap<>();
+    private final TreeMap<Long, Integer> endMinutes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> preciseStarts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> preciseEnds = new TreeMap<>();
+    private long wholeMinutes;
+    private Duration preciseDuration = Duration.ZERO;
+
+    void put(Subtask subtask) {
+        remove(subtask.getId());
+        Contribution contribution = new Contribution(subtask.getStatus(), subtask.getDuration(),
+                subtask.getStartTime(), subtask.getEndTime());
+        contributions.put(subtask.getId(), contribution);
+
+        if (contribution.status != null) statusCounts[contribution.status.ordinal()]++;
+        contribution.addDuration(this, 1);
+        contribution.forStart(startMinutes, preciseStarts, 1);
+        contribution.forEnd(endMinutes, preciseEnds, 1);
+    }
+
+    void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) return;
+
+        if (contribution.status != null) statusCounts[contribution.status.ordinal()]--;
+        contribution.addDuration(this, -1);
+        contribution.forStart(startMinutes, preciseStarts, -1);
+        contribution.forEnd(endMinutes, preciseEnds, -1);
+    }
+
+    void clear() {
+        contributions.clear();
+        Arrays.fill(statusCounts, 0);
+        startMinutes.clear();
+        endMinutes.clear();
+        preciseStarts.clear();
+        preciseEnds.clear();
+        wholeMinutes = 0;
+        preciseDuration = Duration.ZERO;
+    }
+
+    boolean contains(int subtaskId) {
+        return contributions.containsKey(subtaskId);
+    }
+
+    Status status() {
+        int total = contributions.size();
+        if (total == 0) return Status.NEW;
+        if (statusCounts[Status.DONE.ordinal()] == total) return Status.DONE;
+        if (statusCounts[Status.NEW.ordinal()] == total) return Status.NEW;
+        return Status.IN_PROGRESS;
+    }
+
+    Duration duration() {
+        return preciseDuration.isZero() ? Duration.ofMinutes(wholeMinutes) : preciseDuration.plusMinutes(wholeMinutes);
+    }
+
+    LocalDateTime startTime() {
+        LocalDateTime precise = earliestPreciseStart();
+        return precise != null ? precise : Minutes.toDateTime(earliestStartMinute());
+    }
+
+    LocalDateTime endTime() {
+        LocalDateTime precise = latestPreciseEnd();
+        return precise != null ? precise : Minutes.toDateTime(latestEndMinute());
+    }
+
+    // В обычном случае, когда всё кратно минуте, объекты времени не создаются
+    void applyTimesTo(Epic epic) {
+        if (preciseDuration.isZero()) {
+            epic.setDurationMinutes(wholeMinutes);
+        } else {
+            epic.setDuration(duration());
+        }
+        LocalDateTime precise = earliestPreciseStart();
+        if (precise != null) {
+            epic.setStartTime(precise);
+        } else {
+            epic.setStartMinute(earliestStartMinute());
+        }
+        precise = latestPreciseEnd();
+        if (precise != null) {
+            epic.setEndTime(precise);
+        } else {
+            epic.setEndMinute(latestEndMinute());
+        }
+    }
+
+    private long earliestStartMinute() {
+        return startMinutes.isEmpty() ? Minutes.NONE : startMinutes.firstKey();
+    }
+
+    private long latestEndMinute() {
+        return endMinutes.isEmpty() ? Minutes.NONE : endMinutes.lastKey();
+    }
+
+    // Некратный минуте момент внутри минуты m раньше начала минуты w тогда и только тогда, когда m < w
+    private LocalDateTime earliestPreciseStart() {
+        if (preciseStarts.isEmpty()) return null;
+        LocalDateTime precise = preciseStarts.firstKey();
+        long whole = earliestStartMinute();
+        return whole == Minutes.NONE || Minutes.of(precise) < whole ? precise : null;
+    }
+
+    private LocalDateTime latestPreciseEnd() {
+        if (preciseEnds.isEmpty()) return null;
+        LocalDateTime precise = preciseEnds.lastKey();
+        long whole = latestEndMinute();
+        return whole == Minutes.NONE || Minutes.of(precise) >= whole ? precise : null;
+    }
+
+    private static <K> void count(TreeMap<K, Integer> counts, K key, int delta) {
+        counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    // Вклад одной подзадачи в тех же числах, что и у Task: объекты времени - только для некратных минуте
+    private static final class Contribution {
+        private final Status status;
+        private final long durationMinutes;
+        private final long startMinute;
+        private final long endMinute;
+        private final Duration preciseDuration;
+        private final LocalDateTime preciseStart;
+        private final LocalDateTime preciseEnd;
+
+        private Contribution(Status status, Duration duration, LocalDateTime start, LocalDateTime end) {
+            this.status = status;
+            this.durationMinutes = Minutes.of(duration);
+            this.startMinute = Minutes.of(start);
+            this.endMinute = Minutes.of(end);
+            this.preciseDuration = duration == null || Minutes.isWhole(duration) ? null : duration;
+            this.preciseStart = start == null || Minutes.isWhole(start) ? null : start;
+            this.preciseEnd = end == null || Minutes.isWhole(end) ? null : end;
+        }
+
+        private void addDuration(EpicAggregate aggregate, int sign) {
+            if (preciseDuration != null) {
+                aggregate.preciseDuration = sign > 0
+                        ? aggregate.preciseDuration.plus(preciseDuration)
+                        : aggregate.preciseDuration.minus(preciseDuration);
+            } else if (durationMinutes != Minutes.NONE) {
+                aggregate.wholeMinutes += sign * durationMinutes;
+            }
+        }
+
+        private void forStart(TreeMap<Long, Integer> whole, TreeMap<LocalDateTime, Integer> precise, int delta) {
+            if (preciseStart != null) {
+                count(precise, preciseStart, delta);
+            } else if (startMinute != Minutes.NONE) {
+                count(whole, startMinute, delta);
+            }
+        }
+
+        private void forEnd(TreeMap<Long, Integer> whole, TreeMap<LocalDateTime, Integer> precise, int delta) {
+            if (preciseEnd != null) {
+                count(precise, preciseEnd, delta);
+            } else if (endMinute != Minutes.NONE) {
+                count(whole, endMinute, delta);
+            }
+        }
+    }
+}
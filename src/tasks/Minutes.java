@@ -0,0 +1,50 @@
+package tasks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Компактное хранение времени в задачах: момент - номер минуты от эпохи, длительность - число минут.
+// Значения с секундами или долями секунды так не представить, их задача хранит отдельным объектом.
+// Для индексов, которым нужен точный порядок без объектов, момент раскладывается на минуту
+// и наносекунды внутри неё
+public final class Minutes {
+    public static final long NONE = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private Minutes() {
+    }
+
+    public static boolean isWhole(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0;
+    }
+
+    public static boolean isWhole(Duration duration) {
+        return duration.getSeconds() % 60 == 0 && duration.getNano() == 0;
+    }
+
+    public static long of(LocalDateTime time) {
+        return time == null ? NONE : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static long of(Duration duration) {
+        return duration == null ? NONE : duration.toMinutes();
+    }
+
+    public static LocalDateTime toDateTime(long minute) {
+        return minute == NONE ? null : LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    public static Duration toDuration(long minutes) {
+        return minutes == NONE ? null : Duration.ofMinutes(minutes);
+    }
+
+    public static long nanosOfMinute(LocalDateTime time) {
+        return time.getSecond() * NANOS_PER_SECOND + time.getNano();
+    }
+
+    public static LocalDateTime toDateTime(long minute, long nanosOfMinute) {
+        return LocalDateTime.ofEpochSecond(minute * 60 + nanosOfMinute / NANOS_PER_SECOND,
+                (int) (nanosOfMinute % NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
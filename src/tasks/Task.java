@@ -9,8 +9,12 @@ public class Task implements Comparable<Task> {
     protected String description;
     protected int id;
     protected Status status;
-    protected Duration duration;
-    protected LocalDateTime startTime;
+    // Время хранится минутами (Minutes.NONE - не задано), объекты LocalDateTime и Duration
+    // создаются только в геттерах. Значение, не кратное минуте, хранится как есть в precise-поле
+    private long startMinute = Minutes.NONE;
+    long durationMinutes = Minutes.NONE;
+    private LocalDateTime preciseStart;
+    private Duration preciseDuration;
 
     public Task(String name, String description, Status status) {
         this.name = name;
@@ -35,15 +39,19 @@ public class Task implements Comparable<Task> {
     }
 
     public Duration getDuration() {
-        return duration;
+        return preciseDuration != null ? preciseDuration : Minutes.toDuration(durationMinutes);
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return preciseStart != null ? preciseStart : Minutes.toDateTime(startMinute);
     }
 
     public LocalDateTime getEndTime() {
-        return (startTime != null && duration != null) ? startTime.plus(duration) : null;
+        if (startMinute == Minutes.NONE || durationMinutes == Minutes.NONE) return null;
+        if (preciseStart == null && preciseDuration == null) {
+            return Minutes.toDateTime(startMinute + durationMinutes);
+        }
+        return getStartTime().plus(getDuration());
     }
 
     public void setId(int id) {
@@ -63,19 +71,32 @@ public class Task implements Comparable<Task> {
     }
 
     public void setDuration(Duration duration) {
-        this.duration = duration;
+        this.durationMinutes = Minutes.of(duration);
+        this.preciseDuration = duration == null || Minutes.isWhole(duration) ? null : duration;
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        this.startMinute = Minutes.of(startTime);
+        this.preciseStart = startTime == null || Minutes.isWhole(startTime) ? null : startTime;
+    }
+
+    // Для пересчёта эпика: записывают минуты напрямую, без промежуточных объектов
+    void setStartMinute(long startMinute) {
+        this.startMinute = startMinute;
+        this.preciseStart = null;
+    }
+
+    void setDurationMinutes(long durationMinutes) {
+        this.durationMinutes = durationMinutes;
+        this.preciseDuration = null;
     }
 
     public String getStartTimeString() {
-        return startTime == null ? "" : startTime.toString();
+        return startMinute == Minutes.NONE ? "" : getStartTime().toString();
     }
 
     public String getDurationMinutesString() {
-        return duration == null ? "" : String.valueOf(duration.toMinutes());
+        return durationMinutes == Minutes.NONE ? "" : String.valueOf(durationMinutes);
     }
 
     @Override
@@ -103,13 +124,15 @@ public class Task implements Comparable<Task> {
 
     @Override
     public int compareTo(Task other) {
-        if (this.startTime == null && other.startTime == null) {
+        if (this.startMinute == Minutes.NONE && other.startMinute == Minutes.NONE) {
             return Integer.compare(this.id, other.id);
         }
-        if (this.startTime == null) return 1;
-        if (other.startTime == null) return -1;
+        if (this.startMinute == Minutes.NONE) return 1;
+        if (other.startMinute == Minutes.NONE) return -1;
 
-        int cmp = this.startTime.compareTo(other.startTime);
+        int cmp = this.preciseStart == null && other.preciseStart == null
+                ? Long.compare(this.startMinute, other.startMinute)
+                : this.getStartTime().compareTo(other.getStartTime());
         if (cmp != 0) return cmp;
 
         return Integer.compare(this.id, other.id);
@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.Test;
+import taskmanager.ColumnarTaskManager;
+import taskmanager.InMemoryTaskManager;
+import taskmanager.TaskManager;
+import taskmanager.TaskType;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+
+    @Override
+    protected ColumnarTaskManager createManager() {
+        return new ColumnarTaskManager();
+    }
+
+    @Test
+    void shouldReturnCopiesThatChangeOnlyThroughUpdate() {
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        Task copy = manager.getTaskById(task.getId());
+        copy.setStatus(Status.DONE);
+
+        assertEquals(Status.NEW, manager.getTaskById(task.getId()).getStatus());
+        manager.updateTask(copy);
+        assertEquals(Status.DONE, manager.getTaskById(task.getId()).getStatus());
+        assertEquals(Status.DONE, manager.getHistory().get(0).getStatus());
+        assertEquals(1, manager.countByStatus(Status.DONE, TaskType.TASK));
+        assertEquals(0, manager.countByStatus(Status.NEW, TaskType.TASK));
+    }
+
+    @Test
+    void shouldRejectTimesWithSeconds() {
+        Task task = new Task("Task", "Desc", Status.NEW);
+        task.setStartTime(LocalDateTime.of(2025, 3, 1, 9, 0, 30));
+        assertThrows(IllegalArgumentException.class, () -> manager.createTask(task));
+
+        Task batchItem = new Task("Other", "Desc", Status.NEW);
+        batchItem.setDuration(Duration.ofSeconds(90));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.createTasks(List.of(new Task("Valid", "Desc", Status.NEW), batchItem)));
+        assertTrue(manager.getAllTasks().isEmpty());
+    }
+
+    @Test
+    void shouldAggregateEpicAndMoveSubtaskBetweenEpics() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask early = manager.createSubtask(timed(new Subtask("Early", "Desc", Status.DONE, first.getId()), base, 30));
+        Subtask late = manager.createSubtask(timed(new Subtask("Late", "Desc", Status.NEW, first.getId()),
+                base.plusHours(2), 45));
+
+        Epic stored = manager.getEpicById(first.getId());
+        assertEquals(Status.IN_PROGRESS, stored.getStatus());
+        assertEquals(base, stored.getStartTime());
+        assertEquals(Duration.ofMinutes(75), stored.getDuration());
+        assertEquals(base.plusHours(2).plusMinutes(45), stored.getEndTime());
+        assertEquals(List.of(early.getId(), late.getId()), stored.getSubtaskIds());
+
+        late.setEpicId(second.getId());
+        manager.updateSubtask(late);
+
+        assertEquals(Status.DONE, manager.getEpicById(first.getId()).getStatus());
+        assertEquals(base.plusMinutes(30), manager.getEpicById(first.getId()).getEndTime());
+        assertEquals(List.of(late), manager.getSubtasksByEpicId(second.getId()));
+        assertEquals(Status.NEW, manager.getEpicById(second.getId()).getStatus());
+    }
+
+    @Test
+    void shouldDeleteEpicWithSubtasksAndFreeTheirSlots() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask sub = manager.createSubtask(timed(new Subtask("Sub", "Desc", Status.NEW, epic.getId()), base, 60));
+        manager.getSubtaskById(sub.getId());
+
+        manager.deleteEpicById(epic.getId());
+
+        assertNull(manager.getSubtaskById(sub.getId()));
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        assertTrue(manager.getHistory().isEmpty());
+        assertNotNull(manager.createTask(timed(new Task("Task", "Desc", Status.NEW), base, 60)));
+    }
+
+    @Test
+    void shouldKeepTextAcrossRepeatedRenames() {
+        Task task = manager.createTask(new Task("Task", null, Status.NEW));
+        for (int i = 0; i < 5000; i++) {
+            Task renamed = new Task("Имя " + i, i % 2 == 0 ? null : "Описание " + i, Status.NEW);
+            renamed.setId(task.getId());
+            manager.updateTask(renamed);
+        }
+        Task stored = manager.getTaskById(task.getId());
+        assertEquals("Имя 4999", stored.getName());
+        assertEquals("Описание 4999", stored.getDescription());
+    }
+
+    // Тот же случайный сценарий в InMemoryTaskManager даёт тот же порядок приоритета и те же отказы
+    @Test
+    void shouldMatchInMemoryScheduleOnRandomWorkload() {
+        TaskManager reference = new InMemoryTaskManager();
+        Random random = new Random(3);
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 0, 0);
+        List<Integer> ids = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            if (ids.isEmpty() || random.nextInt(4) != 0) {
+                LocalDateTime start = random.nextInt(10) == 0 ? null : base.plusMinutes(random.nextInt(200_000));
+                int minutes = random.nextInt(5) == 0 ? -1 : random.nextInt(120);
+                Task expected = reference.createTask(randomTask(start, minutes));
+                Task actual = manager.createTask(randomTask(start, minutes));
+                assertEquals(expected == null, actual == null);
+                if (actual != null) {
+                    assertEquals(expected.getId(), actual.getId());
+                    ids.add(actual.getId());
+                }
+            } else {
+                int id = ids.remove(random.nextInt(ids.size()));
+                reference.deleteTaskById(id);
+                manager.deleteTaskById(id);
+            }
+        }
+
+        assertEquals(reference.getPrioritizedTasks(), manager.getPrioritizedTasks());
+        assertEquals(reference.getAllTasks(), manager.getAllTasks());
+        LocalDateTime from = base.plusMinutes(50_000);
+        LocalDateTime to = base.plusMinutes(60_000);
+        assertEquals(reference.getTasksInRange(from, to), manager.getTasksInRange(from, to));
+        assertEquals(reference.findEarliestFreeSlot(Duration.ofMinutes(90), from),
+                manager.findEarliestFreeSlot(Duration.ofMinutes(90), from));
+    }
+
+    private static Task randomTask(LocalDateTime start, int minutes) {
+        Task task = new Task("Task", "Desc", Status.NEW);
+        task.setStartTime(start);
+        if (minutes >= 0) task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+
+    private static <T extends Task> T timed(T task, LocalDateTime start, int minutes) {
+        task.setStartTime(start);
+        task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import taskmanager.ConcurrentHistoryManager;
+import tasks.Status;
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+    private ConcurrentHistoryManager manager;
+    private List<Task> tasks;
+
+    @BeforeEach
+    void setUp() {
+        manager = new ConcurrentHistoryManager();
+        tasks = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            Task task = new Task("Task " + i, "Description", Status.NEW);
+            task.setId(i);
+            tasks.add(task);
+        }
+    }
+
+    @Test
+    void testAddMovesTaskToEndWithoutDuplicates() {
+        manager.add(tasks.get(0));
+        manager.add(tasks.get(1));
+        manager.add(tasks.get(0));
+        List<Task> history = manager.getHistory();
+        assertEquals(List.of(tasks.get(1), tasks.get(0)), history);
+    }
+
+    @Test
+    void testRemoveAndNullHandling() {
+        manager.add(null);
+        manager.add(tasks.get(0));
+        manager.add(tasks.get(1));
+        manager.remove(tasks.get(0).getId());
+        manager.remove(999);
+        assertEquals(List.of(tasks.get(1)), manager.getHistory());
+    }
+
+    @Test
+    void testConcurrentWritersKeepHistoryConsistent() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    Task task = tasks.get(random.nextInt(tasks.size()));
+                    if (random.nextInt(10) == 0) {
+                        manager.remove(task.getId());
+                    } else {
+                        manager.add(task);
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            while (writing.get()) {
+                List<Task> snapshot = manager.getHistory();
+                assertEquals(snapshot.size(), new HashSet<>(snapshot).size(), "Snapshot must not contain duplicates");
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        for (Task task : tasks) {
+            manager.add(task);
+        }
+        assertEquals(tasks, manager.getHistory(), "After quiescence every task must appear once in view order");
+    }
+}
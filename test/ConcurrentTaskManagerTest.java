@@ -0,0 +1,279 @@
+import org.junit.jupiter.api.Test;
+import taskmanager.ConcurrentTaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void shouldAssignUniqueIdsUnderContention() throws Exception {
+        Queue<Integer> ids = new ConcurrentLinkedQueue<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < 1000; i++) {
+                ids.add(manager.createTask(new Task("T" + thread + "-" + i, "desc", Status.NEW)).getId());
+            }
+        });
+
+        assertEquals(THREADS * 1000, ids.size());
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "Ids must be unique");
+        assertEquals(ids.size(), manager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldAcceptExactlyOneTaskPerContendedSlot() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 6, 10, 0, 0);
+        int slots = 200;
+        Queue<Task> accepted = new ConcurrentLinkedQueue<>();
+        runConcurrently(thread -> {
+            for (int slot = 0; slot < slots; slot++) {
+                Task task = new Task("T" + thread, "desc", Status.NEW);
+                task.setStartTime(base.plusHours(slot).plusMinutes(thread));
+                task.setDuration(Duration.ofMinutes(30));
+                Task result = manager.createTask(task);
+                if (result != null) accepted.add(result);
+            }
+        });
+
+        assertEquals(slots, accepted.size(), "Every hour slot must be taken by exactly one thread");
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(new HashSet<>(accepted), new HashSet<>(prioritized));
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertTrue(prioritized.get(i - 1).getEndTime().isBefore(prioritized.get(i).getStartTime()),
+                    "Scheduled tasks must not overlap");
+        }
+    }
+
+    @Test
+    void shouldKeepEpicAggregatesConsistentUnderConcurrentSubtaskWrites() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            epics.add(manager.createEpic(new Epic("Epic" + i, "desc")));
+        }
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        runConcurrently(thread -> {
+            Epic epic = epics.get(thread % epics.size());
+            List<Subtask> own = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                Subtask subtask = new Subtask("S", "desc", Status.NEW, epic.getId());
+                subtask.setStartTime(base.plusDays(thread).plusMinutes(i * 2L));
+                subtask.setDuration(Duration.ofMinutes(1));
+                own.add(manager.createSubtask(subtask));
+            }
+            for (int i = 0; i < own.size(); i += 2) {
+                Subtask subtask = own.get(i);
+                subtask.setStatus(Status.DONE);
+                manager.updateSubtask(subtask);
+            }
+            for (int i = 1; i < own.size(); i += 4) {
+                manager.deleteSubtaskById(own.get(i).getId());
+            }
+        });
+
+        for (Epic epic : epics) {
+            List<Subtask> subs = manager.getSubtasksByEpicId(epic.getId());
+            assertEquals(epic.getSubtaskIds().size(), subs.size());
+            boolean allDone = subs.stream().allMatch(s -> s.getStatus() == Status.DONE);
+            boolean allNew = subs.stream().allMatch(s -> s.getStatus() == Status.NEW);
+            assertEquals(allDone ? Status.DONE : allNew ? Status.NEW : Status.IN_PROGRESS, epic.getStatus());
+            assertEquals(epic.calculateDuration(manager), epic.getDuration());
+            assertEquals(epic.calculateStartTime(manager), epic.getStartTime());
+            assertEquals(epic.calculateEndTime(manager), epic.getEndTime());
+        }
+        assertEquals(manager.getAllSubtasks().size(), manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldNotLeaveOrphanSubtasksWhenEpicIsDeletedConcurrently() throws Exception {
+        Epic epic = manager.createEpic(new Epic("Epic", "desc"));
+        CountDownLatch halfway = new CountDownLatch(1);
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                try {
+                    halfway.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                manager.deleteEpicById(epic.getId());
+                return;
+            }
+            for (int i = 0; i < 500; i++) {
+                manager.createSubtask(new Subtask("S", "desc", Status.NEW, epic.getId()));
+                if (i == 100) halfway.countDown();
+            }
+        });
+
+        assertNull(manager.getEpicById(epic.getId()));
+        assertTrue(manager.getAllSubtasks().isEmpty(), "Subtasks of a deleted epic must be removed");
+    }
+
+    @Test
+    void shouldMatchSequentialStateAfterConcurrentHistoryAccess() throws Exception {
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            created.add(manager.createTask(new Task("T" + i, "desc", Status.NEW)));
+        }
+        runConcurrently(thread -> {
+            for (int round = 0; round < 50; round++) {
+                for (Task task : created) {
+                    manager.getTaskById(task.getId());
+                }
+                manager.getHistory();
+            }
+        });
+
+        List<Task> history = manager.getHistory();
+        assertEquals(created.size(), history.size());
+        Set<Task> unique = new HashSet<>(history);
+        assertEquals(history.size(), unique.size(), "History must not contain duplicates");
+    }
+
+    // Подзадача попеременно становится то завершённой утренней, то новой вечерней: в прочитанном эпике
+    // статус и время всегда должны относиться к одному и тому же её состоянию
+    @Test
+    void shouldReadConsistentEpicWhileSubtasksChange() throws Exception {
+        Epic epic = manager.createEpic(new Epic("Epic", "desc"));
+        LocalDateTime morning = LocalDateTime.of(2025, 4, 1, 9, 0);
+        LocalDateTime evening = morning.plusHours(10);
+        Subtask subtask = new Subtask("Sub", "desc", Status.DONE, epic.getId());
+        subtask.setStartTime(morning);
+        subtask.setDuration(Duration.ofMinutes(30));
+        int id = manager.createSubtask(subtask).getId();
+        AtomicBoolean finished = new AtomicBoolean();
+        Queue<String> mismatches = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int i = 0; i < 20_000; i++) {
+                    boolean done = i % 2 == 1;
+                    Subtask next = new Subtask("Sub", "desc", done ? Status.DONE : Status.NEW, epic.getId());
+                    next.setId(id);
+                    next.setStartTime(done ? morning : evening);
+                    next.setDuration(Duration.ofMinutes(done ? 30 : 60));
+                    manager.updateSubtask(next);
+                }
+                finished.set(true);
+                return;
+            }
+            while (!finished.get()) {
+                Epic read = thread % 2 == 0 ? manager.getEpicById(epic.getId()) : manager.getAllEpics().get(0);
+                boolean done = read.getStatus() == Status.DONE;
+                if (!read.getStartTime().equals(done ? morning : evening)
+                        || !read.getDuration().equals(Duration.ofMinutes(done ? 30 : 60))
+                        || !read.getEndTime().equals(read.getStartTime().plus(read.getDuration()))) {
+                    mismatches.add(read.toString());
+                }
+            }
+        });
+
+        assertTrue(mismatches.isEmpty(), "Torn epic reads: " + mismatches.peek());
+        assertNotSame(manager.getEpicById(epic.getId()), manager.getEpicById(epic.getId()));
+    }
+
+    // Откат возвращает счётчик id и прежние объекты: если бы другие потоки писали в это время,
+    // их задачи пропали бы или получили повторные id
+    @Test
+    void shouldNotLoseConcurrentWritesOnRollback() throws Exception {
+        Epic epic = manager.createEpic(new Epic("Epic", "desc"));
+        Queue<Integer> ids = new ConcurrentLinkedQueue<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < 300; i++) {
+                if (thread == 0) {
+                    assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+                        tx.createTask(new Task("Rolled back", "desc", Status.NEW));
+                        tx.createSubtask(new Subtask("Rolled back", "desc", Status.DONE, epic.getId()));
+                        throw new IllegalStateException("rollback");
+                    }));
+                } else {
+                    ids.add(manager.createTask(new Task("T" + thread, "desc", Status.NEW)).getId());
+                    ids.add(manager.createSubtask(new Subtask("S" + thread, "desc", Status.NEW, epic.getId())).getId());
+                }
+            }
+        });
+
+        assertEquals((THREADS - 1) * 600, ids.size());
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "Ids must be unique");
+        assertEquals((THREADS - 1) * 300, manager.getAllTasks().size());
+        assertEquals((THREADS - 1) * 300, manager.getEpicById(epic.getId()).getSubtaskCount());
+        assertEquals(Status.NEW, manager.getEpicById(epic.getId()).getStatus());
+    }
+
+    // Автопланирование читает задачу под той же исключительной блокировкой, под которой пишет:
+    // параллельная смена статуса не должна затираться копией, снятой раньше
+    @Test
+    void shouldNotOverwriteConcurrentUpdateWhenAutoScheduling() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 5, 1, 0, 0);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Task task = new Task("T" + i, "desc", Status.NEW);
+            task.setDuration(Duration.ofMinutes(10));
+            ids.add(manager.createTask(task).getId());
+        }
+
+        runConcurrently(thread -> {
+            if (thread > 1) return;
+            for (int id : ids) {
+                Task item = new Task("T", "desc", thread == 0 ? Status.NEW : Status.DONE);
+                item.setId(id);
+                item.setDuration(Duration.ofMinutes(10));
+                if (thread == 0) {
+                    manager.autoSchedule(List.of(item), base);
+                } else {
+                    manager.updateTask(item);
+                }
+            }
+        });
+
+        for (Task task : manager.getAllTasks()) {
+            assertEquals(Status.DONE, task.getStatus(), "Update of task " + task.getId() + " was lost");
+        }
+    }
+
+    private void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                body.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadBody {
+        void run(int thread);
+    }
+}
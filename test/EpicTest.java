@@ -1,10 +1,19 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import taskmanager.InMemoryHistoryManager;
+import taskmanager.InMemoryTaskManager;
 import taskmanager.Managers;
 import taskmanager.TaskManager;
 import tasks.Epic;
 import tasks.Status;
 import tasks.Subtask;
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -64,4 +73,121 @@ class EpicTest {
         epic.addSubtaskId(epic.getId());
         assertEquals(initialSize, epic.getSubtaskIds().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testIncrementalAggregatesMatchRecomputation() {
+        checkAggregatesAgainstRecomputation(new Random(7), false);
+    }
+
+    @Test
+    void testIncrementalAggregatesWithSecondsMatchRecomputation() {
+        checkAggregatesAgainstRecomputation(new Random(11), true);
+    }
+
+    private void checkAggregatesAgainstRecomputation(Random random, boolean withSeconds) {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        List<Integer> subtaskIds = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            int action = subtaskIds.isEmpty() ? 0 : random.nextInt(10);
+            if (action < 5) {
+                Subtask created = manager.createSubtask(randomSubtask(random, base, epic.getId(), withSeconds));
+                if (created != null) subtaskIds.add(created.getId());
+            } else if (action < 8) {
+                Subtask updated = randomSubtask(random, base, epic.getId(), withSeconds);
+                updated.setId(subtaskIds.get(random.nextInt(subtaskIds.size())));
+                manager.updateSubtask(updated);
+            } else if (action < 9 || i % 500 != 0) {
+                int id = subtaskIds.remove(random.nextInt(subtaskIds.size()));
+                manager.deleteSubtaskById(id);
+            } else {
+                manager.deleteAllSubtasks();
+                subtaskIds.clear();
+            }
+
+            assertEquals(recomputedStatus(), epic.getStatus());
+            assertEquals(epic.calculateDuration(manager), epic.getDuration());
+            assertEquals(epic.calculateStartTime(manager), epic.getStartTime());
+            assertEquals(epic.calculateEndTime(manager), epic.getEndTime());
+        }
+    }
+
+    private Subtask randomSubtask(Random random, LocalDateTime base, int epicId, boolean withSeconds) {
+        Status status = Status.values()[random.nextInt(Status.values().length)];
+        Subtask subtask = new Subtask("Sub", "Desc", status, epicId);
+        if (random.nextInt(4) != 0) {
+            LocalDateTime start = base.plusMinutes(random.nextInt(500_000));
+            if (withSeconds && random.nextBoolean()) start = start.plusSeconds(random.nextInt(60)).plusNanos(random.nextInt(1000));
+            subtask.setStartTime(start);
+        }
+        if (random.nextInt(4) != 0) {
+            Duration duration = Duration.ofMinutes(random.nextInt(90));
+            if (withSeconds && random.nextBoolean()) duration = duration.plusSeconds(random.nextInt(60));
+            subtask.setDuration(duration);
+        }
+        return subtask;
+    }
+
+    private Status recomputedStatus() {
+        List<Subtask> subs = manager.getSubtasksByEpicId(epic.getId());
+        if (subs.isEmpty()) return Status.NEW;
+        boolean allNew = subs.stream().allMatch(s -> s.getStatus() == Status.NEW);
+        boolean allDone = subs.stream().allMatch(s -> s.getStatus() == Status.DONE);
+        return allDone ? Status.DONE : allNew ? Status.NEW : Status.IN_PROGRESS;
+    }
+
+    @Test
+    void testEpicRecalculationDoesNotWriteHistory() {
+        CountingHistoryManager history = new CountingHistoryManager();
+        TaskManager tracked = new InMemoryTaskManager(history);
+        Epic trackedEpic = tracked.createEpic(new Epic("Epic", "Desc"));
+        List<Subtask> subs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            subs.add(tracked.createSubtask(new Subtask("Sub" + i, "Desc", Status.NEW, trackedEpic.getId())));
+        }
+        for (Subtask sub : subs) {
+            sub.setStatus(Status.DONE);
+            tracked.updateSubtask(sub);
+        }
+        tracked.updateEpic(trackedEpic);
+        trackedEpic.calculateDuration(tracked);
+        trackedEpic.calculateStartTime(tracked);
+        trackedEpic.calculateEndTime(tracked);
+
+        assertEquals(Status.DONE, trackedEpic.getStatus());
+        assertEquals(0, history.writes, "Recalculation must not touch history");
+        assertTrue(tracked.getHistory().isEmpty());
+    }
+
+    // Выделение памяти при пересчёте замеряется в bench/ (EpicBenchmark.recalculateEpic, профилировщик gc)
+    @Test
+    void testRepeatedEpicRecalculationKeepsTotals() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        for (int i = 0; i < 50; i++) {
+            Subtask sub = new Subtask("Sub" + i, "Desc", Status.IN_PROGRESS, epic.getId());
+            sub.setStartTime(base.plusHours(i));
+            sub.setDuration(Duration.ofMinutes(30));
+            manager.createSubtask(sub);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            manager.updateEpic(epic);
+        }
+
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(base, epic.getStartTime());
+        assertEquals(Duration.ofMinutes(50 * 30), epic.getDuration());
+        assertEquals(base.plusHours(49).plusMinutes(30), epic.getEndTime());
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    private static class CountingHistoryManager extends InMemoryHistoryManager {
+        private int writes;
+
+        @Override
+        public void add(Task task) {
+            writes++;
+            super.add(task);
+        }
+    }
+}
@@ -4,6 +4,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import taskmanager.FileBackedTaskManager;
 import taskmanager.ManagerSaveException;
+import taskmanager.Managers;
+import taskmanager.SnapshotFormat;
+import taskmanager.TaskType;
 import tasks.Epic;
 import tasks.Status;
 import tasks.Subtask;
@@ -11,9 +14,12 @@ import tasks.Task;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -74,6 +80,19 @@ class FileBackedTaskManagerTest {
         assertEquals("Subtask1", subtasks.get(0).getName());
     }
 
+    @Test
+    void shouldShareEqualDescriptionsAfterLoad() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        manager.createTask(new Task("Task1", new String("Общее описание"), Status.NEW));
+        manager.createTask(new Task("Task2", new String("Общее описание"), Status.DONE));
+        manager.createTask(new Task("Task3", "Другое", Status.NEW));
+
+        List<Task> loaded = FileBackedTaskManager.loadFromFile(tempFile).getAllTasks();
+
+        assertSame(loaded.get(0).getDescription(), loaded.get(1).getDescription());
+        assertEquals("Другое", loaded.get(2).getDescription());
+    }
+
     @Test
     void shouldRestoreSubtaskRelationToEpic() {
         FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
@@ -163,4 +182,226 @@ class FileBackedTaskManagerTest {
         manager.createSubtask(new Subtask("Sub2", "Desc", Status.IN_PROGRESS, epic.getId()));
         assertEquals(Status.IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRestoreStartTimesWithAnyPrecision() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        LocalDateTime[] starts = {
+                LocalDateTime.of(2025, 5, 1, 9, 30),
+                LocalDateTime.of(2025, 5, 2, 9, 30, 15),
+                LocalDateTime.of(2025, 5, 3, 9, 30, 15, 123_000_000)
+        };
+        for (LocalDateTime start : starts) {
+            Task task = new Task("Task", "Описание", Status.NEW);
+            task.setStartTime(start);
+            task.setDuration(Duration.ofMinutes(45));
+            manager.createTask(task);
+        }
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        List<Task> prioritized = loaded.getPrioritizedTasks();
+        assertEquals(3, prioritized.size());
+        for (int i = 0; i < starts.length; i++) {
+            assertEquals(starts[i], prioritized.get(i).getStartTime());
+            assertEquals(Duration.ofMinutes(45), prioritized.get(i).getDuration());
+            assertEquals("Описание", prioritized.get(i).getDescription());
+        }
+    }
+
+    @Test
+    void shouldKeepFirstOfOverlappingTasksOnLoad() throws IOException {
+        Files.writeString(tempFile.toPath(), """
+                id,type,name,status,description,epic,startTime,duration
+                1,TASK,Late,NEW,Desc,,2025-05-01T12:00,60
+                2,TASK,Overlapping,NEW,Desc,,2025-05-01T11:30,60
+                3,TASK,Early,NEW,Desc,,2025-05-01T09:00,60
+                4,TASK,Untimed,NEW,Desc,,,
+                """);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        List<Task> prioritized = loaded.getPrioritizedTasks();
+
+        assertEquals(4, loaded.getAllTasks().size());
+        assertEquals(2, prioritized.size());
+        assertEquals(3, prioritized.get(0).getId());
+        assertEquals(1, prioritized.get(1).getId());
+    }
+
+    @Test
+    void shouldSaveAndLoadBinarySnapshot() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, SnapshotFormat.BINARY);
+        Task task = new Task("Задача", "Описание, с запятой", Status.IN_PROGRESS);
+        task.setStartTime(LocalDateTime.of(2025, 5, 1, 9, 30, 15));
+        task.setDuration(Duration.ofMinutes(90));
+        manager.createTask(task);
+        Epic epic = manager.createEpic(new Epic("Epic", ""));
+        Subtask subtask = new Subtask("Sub", "Desc", Status.DONE, epic.getId());
+        subtask.setStartTime(LocalDateTime.of(1969, 12, 31, 23, 0));
+        subtask.setDuration(Duration.ofMinutes(30));
+        manager.createSubtask(subtask);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, SnapshotFormat.BINARY);
+
+        Task loadedTask = loaded.getTaskById(task.getId());
+        assertEquals("Описание, с запятой", loadedTask.getDescription());
+        assertEquals(Status.IN_PROGRESS, loadedTask.getStatus());
+        assertEquals(task.getStartTime(), loadedTask.getStartTime());
+        assertEquals(task.getDuration(), loadedTask.getDuration());
+        assertEquals(subtask.getStartTime(), loaded.getSubtaskById(subtask.getId()).getStartTime());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+        assertEquals(4, loaded.createTask(new Task("New", "Desc", Status.NEW)).getId());
+    }
+
+    @Test
+    void shouldRoundTripNullFieldsInBinarySnapshot() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, SnapshotFormat.BINARY);
+        Task task = manager.createTask(new Task(null, null, null));
+        Task empty = manager.createTask(new Task("", "", Status.NEW));
+        Epic epic = manager.createEpic(new Epic(null, null));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", null, Status.NEW, epic.getId()));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, SnapshotFormat.BINARY);
+
+        Task loadedTask = loaded.getTaskById(task.getId());
+        assertNull(loadedTask.getName());
+        assertNull(loadedTask.getDescription());
+        assertNull(loadedTask.getStatus());
+        assertEquals("", loaded.getTaskById(empty.getId()).getName());
+        assertEquals("", loaded.getTaskById(empty.getId()).getDescription());
+        assertNull(loaded.getEpicById(epic.getId()).getName());
+        assertNull(loaded.getSubtaskById(subtask.getId()).getDescription());
+    }
+
+    @Test
+    void shouldConvertBetweenCsvAndBinary() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = new Subtask("Sub", "Desc", Status.IN_PROGRESS, epic.getId());
+        subtask.setStartTime(LocalDateTime.of(2025, 5, 1, 9, 0));
+        subtask.setDuration(Duration.ofMinutes(15));
+        manager.createSubtask(subtask);
+        manager.createTask(new Task("Task", "Desc", Status.NEW));
+
+        File binary = File.createTempFile("taskManagerTest", ".bin");
+        File csv = File.createTempFile("taskManagerTest", ".csv");
+        try {
+            Managers.convertSnapshot(tempFile, SnapshotFormat.CSV, binary, SnapshotFormat.BINARY);
+            Managers.convertSnapshot(binary, SnapshotFormat.BINARY, csv, SnapshotFormat.CSV);
+            assertTrue(binary.length() < tempFile.length());
+            assertEquals(Files.readString(tempFile.toPath()), Files.readString(csv.toPath()));
+        } finally {
+            binary.delete();
+            csv.delete();
+        }
+    }
+
+    @Test
+    void shouldRejectCsvLoadedAsBinary() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        manager.createTask(new Task("Task", "Desc", Status.NEW));
+
+        assertThrows(ManagerSaveException.class,
+                () -> FileBackedTaskManager.loadFromFile(tempFile, SnapshotFormat.BINARY));
+    }
+
+    @Test
+    void shouldLoadInParallelChunksLikeSequentially() throws IOException {
+        StringBuilder csv = new StringBuilder("id,type,name,status,description,epic,startTime,duration\n");
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        int epics = 100;
+        int subtasksPerEpic = 100;
+        // Подзадачи записаны раньше своих эпиков - загрузка не должна от этого зависеть
+        for (int i = 0; i < epics * subtasksPerEpic; i++) {
+            int id = epics + 1 + i;
+            csv.append(id).append(",SUBTASK,Подзадача ").append(id).append(",DONE,Описание,")
+                    .append(1 + i / subtasksPerEpic).append(',').append(start.plusHours(id)).append(",30\n");
+        }
+        for (int id = 1; id <= epics; id++) {
+            csv.append(id).append(",EPIC,Эпик ").append(id).append(",NEW,Описание,,,\n");
+        }
+        Files.writeString(tempFile.toPath(), csv);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileBackedTaskManager parallel = FileBackedTaskManager.loadFromFile(tempFile, pool);
+            FileBackedTaskManager sequential = FileBackedTaskManager.loadFromFile(tempFile);
+
+            assertEquals(epics * subtasksPerEpic, parallel.getAllSubtasks().size());
+            assertEquals(sequential.getPrioritizedTasks(), parallel.getPrioritizedTasks());
+            for (Epic epic : parallel.getAllEpics()) {
+                assertEquals(subtasksPerEpic, epic.getSubtaskIds().size());
+                assertEquals(Status.DONE, epic.getStatus());
+                assertEquals(sequential.getEpicById(epic.getId()).getSubtaskIds(), epic.getSubtaskIds());
+            }
+            int nextId = epics * subtasksPerEpic + epics + 1;
+            assertEquals(nextId, parallel.createTask(new Task("New", "Desc", Status.NEW)).getId());
+            assertEquals("New", FileBackedTaskManager.loadFromFile(tempFile).getTaskById(nextId).getName());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldPersistSubtaskBatch() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        List<Subtask> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new Subtask("Sub" + i, "Desc", Status.DONE, epic.getId()));
+        }
+        manager.createSubtasks(batch);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(100, loaded.getAllSubtasks().size());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    void shouldSaveTransactionOnceAtCommit() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        String before = Files.readString(tempFile.toPath());
+
+        manager.inTransaction(tx -> {
+            Subtask subtask = tx.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+            subtask.setStatus(Status.DONE);
+            tx.updateSubtask(subtask);
+            tx.createTask(new Task("Task", "Desc", Status.NEW));
+            assertDoesNotThrow(() -> assertEquals(before, Files.readString(tempFile.toPath())));
+        });
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loaded.getAllSubtasks().size());
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    void shouldIndexStatusesOnLoad() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+        manager.createTask(new Task("Task", "Desc", Status.IN_PROGRESS));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loaded.countByStatus(Status.DONE, TaskType.SUBTASK));
+        assertEquals(1, loaded.countByStatus(Status.DONE, TaskType.EPIC));
+        assertEquals(1, loaded.countByStatus(Status.IN_PROGRESS, TaskType.TASK));
+    }
+
+    @Test
+    void shouldPersistAutoScheduledTasks() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile);
+        Task task = new Task("Task", "Desc", Status.NEW);
+        task.setDuration(Duration.ofMinutes(30));
+        manager.createTask(task);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+        manager.autoSchedule(List.of(task), start);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(start, loaded.getTaskById(task.getId()).getStartTime());
+        assertEquals(1, loaded.getPrioritizedTasks().size());
+    }
+}
@@ -1,9 +1,15 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import taskmanager.HistoryConfig;
 import taskmanager.InMemoryHistoryManager;
 import tasks.Status;
 import tasks.Task;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -93,4 +99,69 @@ class InMemoryHistoryManagerTest {
         assertEquals(1, history.size());
         assertEquals(task1, history.get(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBoundedHistoryEvictsLeastRecentlyViewed() {
+        InMemoryHistoryManager bounded = new InMemoryHistoryManager(HistoryConfig.ofMaxSize(2));
+        bounded.add(task1);
+        bounded.add(task2);
+        bounded.add(task1);
+        bounded.add(task3);
+
+        ArrayList<Task> history = bounded.getHistory();
+        assertEquals(2, history.size());
+        assertEquals(task1, history.get(0));
+        assertEquals(task3, history.get(1));
+        assertEquals(2, bounded.size());
+        assertEquals(1, bounded.getEvictionCount());
+    }
+
+    @Test
+    void testExpiredViewsAreDropped() {
+        MutableClock clock = new MutableClock();
+        InMemoryHistoryManager expiring = new InMemoryHistoryManager(
+                new HistoryConfig(10, Duration.ofMinutes(5)), clock);
+        expiring.add(task1);
+        clock.advance(Duration.ofMinutes(3));
+        expiring.add(task2);
+        clock.advance(Duration.ofMinutes(3));
+
+        ArrayList<Task> history = expiring.getHistory();
+        assertEquals(1, history.size());
+        assertEquals(task2, history.get(0));
+        assertEquals(1, expiring.getEvictionCount());
+
+        expiring.add(task2);
+        clock.advance(Duration.ofMinutes(4));
+        assertEquals(1, expiring.size(), "Repeated view should refresh expiry");
+    }
+
+    @Test
+    void testInvalidConfigIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new HistoryConfig(0, null));
+        assertThrows(IllegalArgumentException.class, () -> new HistoryConfig(10, Duration.ZERO));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import taskmanager.Managers;
+import taskmanager.TaskConflictException;
 import taskmanager.TaskManager;
+import taskmanager.TaskType;
 import tasks.Epic;
 import tasks.Status;
 import tasks.Subtask;
@@ -9,7 +11,9 @@ import tasks.Task;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -120,4 +124,376 @@ class InMemoryTaskManagerTest {
         manager.createSubtask(new Subtask("Sub2", "Desc", Status.IN_PROGRESS, epic.getId()));
         assertEquals(Status.IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
     }
-}
\ No newline at end of file
+
+    // Интервалы с секундами: несколько интервалов в одной минуте, промежутки короче минуты
+    @Test
+    void testFreeSlotMatchesLinearScanWithSeconds() {
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Task> created = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            Task candidate = new Task("Task" + i, "Desc", Status.NEW);
+            candidate.setStartTime(base.plusSeconds(random.nextInt(60 * 600)));
+            candidate.setDuration(Duration.ofSeconds(random.nextInt(300)));
+            Task result = manager.createTask(candidate);
+            if (result != null) created.add(result);
+            if (!created.isEmpty() && random.nextInt(3) == 0) {
+                manager.deleteTaskById(created.remove(random.nextInt(created.size())).getId());
+            }
+
+            LocalDateTime after = base.plusSeconds(random.nextInt(60 * 600));
+            Duration duration = Duration.ofSeconds(random.nextInt(600), random.nextInt(2) * 500_000_000L);
+            assertEquals(TaskManagerTest.linearFreeSlot(manager.getPrioritizedTasks(), duration, after),
+                    manager.findEarliestFreeSlot(duration, after), "Gap index must agree with linear scan");
+        }
+    }
+
+    @Test
+    void testIntersectionIndexMatchesLinearScan() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Task> created = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            Task candidate = new Task("Task" + i, "Desc", Status.NEW);
+            candidate.setStartTime(base.plusMinutes(random.nextInt(30_000)));
+            candidate.setDuration(Duration.ofMinutes(random.nextInt(60)));
+            boolean expectedConflict = overlapsLinear(manager.getPrioritizedTasks(), candidate);
+            Task result = manager.createTask(candidate);
+            assertEquals(expectedConflict, result == null, "Index must agree with linear scan on create");
+            if (result != null) created.add(result);
+
+            if (created.isEmpty()) continue;
+            int action = random.nextInt(4);
+            if (action == 0) {
+                Task removed = created.remove(random.nextInt(created.size()));
+                manager.deleteTaskById(removed.getId());
+            } else if (action == 1) {
+                Task moved = new Task("Moved", "Desc", Status.IN_PROGRESS);
+                moved.setId(created.get(random.nextInt(created.size())).getId());
+                moved.setStartTime(base.plusMinutes(random.nextInt(30_000)));
+                moved.setDuration(Duration.ofMinutes(random.nextInt(60)));
+                List<Task> others = new ArrayList<>(manager.getPrioritizedTasks());
+                others.removeIf(t -> t.getId() == moved.getId());
+                boolean expectedUpdateConflict = overlapsLinear(others, moved);
+                manager.updateTask(moved);
+                assertEquals(!expectedUpdateConflict, manager.getPrioritizedTasks().contains(moved),
+                        "Index must agree with linear scan on update");
+            }
+        }
+    }
+
+    private static boolean overlapsLinear(List<Task> prioritized, Task newTask) {
+        return prioritized.stream()
+                .filter(t -> t.getStartTime() != null && t.getEndTime() != null)
+                .anyMatch(existing -> existing.getId() != newTask.getId() &&
+                        !(newTask.getEndTime().isBefore(existing.getStartTime()) ||
+                                newTask.getStartTime().isAfter(existing.getEndTime())));
+    }
+
+    @Test
+    void testTransactionDefersEpicRecalculationUntilCommit() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("Sub1", "Desc", Status.DONE, epic.getId()));
+            tx.createSubtask(new Subtask("Sub2", "Desc", Status.DONE, epic.getId()));
+            assertEquals(Status.NEW, epic.getStatus(), "Epic should be recalculated only at commit");
+        });
+        assertEquals(Status.DONE, epic.getStatus());
+    }
+
+    @Test
+    void testTransactionRollsBackOnConflict() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 1, 9, 0);
+        Task scheduled = new Task("Scheduled", "Desc", Status.NEW);
+        scheduled.setStartTime(start);
+        scheduled.setDuration(Duration.ofMinutes(60));
+        manager.createTask(scheduled);
+        Task updated = manager.createTask(new Task("Updated", "Desc", Status.NEW));
+        Task deleted = manager.createTask(new Task("Deleted", "Desc", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask existing = manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+
+        assertThrows(TaskConflictException.class, () -> manager.inTransaction(tx -> {
+            tx.createEpic(new Epic("New epic", "Desc"));
+            tx.createSubtask(new Subtask("New sub", "Desc", Status.NEW, epic.getId()));
+            Task replacement = new Task("Updated", "Desc", Status.DONE);
+            replacement.setId(updated.getId());
+            tx.updateTask(replacement);
+            tx.deleteTaskById(deleted.getId());
+            tx.deleteSubtaskById(existing.getId());
+
+            Task conflicting = new Task("Conflicting", "Desc", Status.NEW);
+            conflicting.setStartTime(start.plusMinutes(30));
+            conflicting.setDuration(Duration.ofMinutes(60));
+            tx.createTask(conflicting);
+        }));
+
+        assertEquals(3, manager.getAllTasks().size());
+        assertEquals(Status.NEW, manager.getTaskById(updated.getId()).getStatus());
+        assertNotNull(manager.getTaskById(deleted.getId()));
+        assertEquals(1, manager.getAllEpics().size());
+        assertEquals(List.of(existing.getId()), manager.getEpicById(epic.getId()).getSubtaskIds());
+        assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(scheduled), manager.getPrioritizedTasks());
+        assertEquals(6, manager.createTask(new Task("Next", "Desc", Status.NEW)).getId());
+    }
+
+    @Test
+    void testBatchConflictRollsBackTransaction() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 1, 9, 0);
+        Task scheduled = new Task("Scheduled", "Desc", Status.NEW);
+        scheduled.setStartTime(start);
+        scheduled.setDuration(Duration.ofMinutes(60));
+        manager.createTask(scheduled);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask existing = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+
+        Task free = new Task("Free", "Desc", Status.NEW);
+        Task conflicting = new Task("Conflicting", "Desc", Status.NEW);
+        conflicting.setStartTime(start.plusMinutes(30));
+        conflicting.setDuration(Duration.ofMinutes(60));
+        assertThrows(TaskConflictException.class,
+                () -> manager.inTransaction(tx -> tx.createTasks(List.of(free, conflicting))));
+        assertEquals(List.of(scheduled), manager.getAllTasks());
+
+        Subtask clashing = new Subtask("Clashing", "Desc", Status.NEW, epic.getId());
+        clashing.setStartTime(start);
+        clashing.setDuration(Duration.ofMinutes(15));
+        assertThrows(TaskConflictException.class, () -> manager.inTransaction(tx -> tx.createSubtasks(
+                List.of(new Subtask("Added", "Desc", Status.DONE, epic.getId()), clashing))));
+        assertEquals(List.of(existing), manager.getAllSubtasks());
+        assertEquals(Status.NEW, manager.getEpicById(epic.getId()).getStatus());
+
+        Subtask done = new Subtask("Sub", "Desc", Status.DONE, epic.getId());
+        done.setId(existing.getId());
+        Task moved = new Task("Scheduled", "Desc", Status.NEW);
+        moved.setId(scheduled.getId());
+        moved.setStartTime(start);
+        moved.setDuration(Duration.ofMinutes(60));
+        Subtask overlapping = new Subtask("Sub", "Desc", Status.DONE, epic.getId());
+        overlapping.setId(existing.getId());
+        overlapping.setStartTime(start.plusMinutes(10));
+        overlapping.setDuration(Duration.ofMinutes(10));
+        assertThrows(TaskConflictException.class,
+                () -> manager.inTransaction(tx -> tx.updateAll(List.of(done, moved, overlapping))));
+        assertSame(existing, manager.getSubtaskById(existing.getId()));
+        assertEquals(Status.NEW, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(scheduled), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void testSubtaskMoveRelinksEpics() {
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask kept = manager.createSubtask(new Subtask("Kept", "Desc", Status.NEW, first.getId()));
+        Subtask moved = manager.createSubtask(new Subtask("Moved", "Desc", Status.DONE, first.getId()));
+
+        moved.setEpicId(second.getId());
+        manager.updateSubtask(moved);
+
+        assertEquals(List.of(kept.getId()), first.getSubtaskIds());
+        assertEquals(Status.NEW, first.getStatus());
+        assertEquals(List.of(moved.getId()), second.getSubtaskIds());
+        assertEquals(Status.DONE, second.getStatus());
+        assertEquals(List.of(moved), manager.getSubtasksByEpicId(second.getId()));
+
+        moved.setStatus(Status.NEW);
+        manager.updateSubtask(moved);
+        assertEquals(Status.NEW, second.getStatus());
+    }
+
+    @Test
+    void testSubtaskMoveIsRolledBack() {
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask moved = manager.createSubtask(new Subtask("Moved", "Desc", Status.DONE, first.getId()));
+        Task scheduled = new Task("Scheduled", "Desc", Status.NEW);
+        scheduled.setStartTime(LocalDateTime.of(2025, 7, 1, 9, 0));
+        scheduled.setDuration(Duration.ofMinutes(60));
+        manager.createTask(scheduled);
+
+        assertThrows(TaskConflictException.class, () -> manager.inTransaction(tx -> {
+            Subtask replacement = new Subtask("Moved", "Desc", Status.DONE, second.getId());
+            replacement.setId(moved.getId());
+            tx.updateSubtask(replacement);
+            Task conflicting = new Task("Conflicting", "Desc", Status.NEW);
+            conflicting.setStartTime(scheduled.getStartTime());
+            conflicting.setDuration(Duration.ofMinutes(30));
+            tx.createTask(conflicting);
+        }));
+
+        assertSame(moved, manager.getSubtaskById(moved.getId()));
+        assertEquals(first.getId(), moved.getEpicId());
+        assertEquals(List.of(moved.getId()), manager.getEpicById(first.getId()).getSubtaskIds());
+        assertEquals(Status.DONE, manager.getEpicById(first.getId()).getStatus());
+        assertTrue(manager.getEpicById(second.getId()).getSubtaskIds().isEmpty());
+        assertEquals(Status.NEW, manager.getEpicById(second.getId()).getStatus());
+    }
+
+    @Test
+    void testStatusIndexFollowsUpdatesAndDeletes() {
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask first = manager.createSubtask(new Subtask("Sub1", "Desc", Status.NEW, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Sub2", "Desc", Status.NEW, epic.getId()));
+
+        task.setStatus(Status.DONE);
+        manager.updateTask(task);
+        first.setStatus(Status.DONE);
+        manager.updateSubtask(first);
+
+        assertEquals(0, manager.countByStatus(Status.NEW, TaskType.TASK));
+        assertEquals(List.of(task), manager.getByStatus(Status.DONE, TaskType.TASK));
+        assertEquals(List.of(second), manager.getByStatus(Status.NEW, TaskType.SUBTASK));
+        assertEquals(List.of(epic), manager.getByStatus(Status.IN_PROGRESS, TaskType.EPIC));
+
+        manager.deleteSubtaskById(second.getId());
+        assertEquals(0, manager.countByStatus(Status.NEW, TaskType.SUBTASK));
+        assertEquals(List.of(epic), manager.getByStatus(Status.DONE, TaskType.EPIC));
+
+        manager.deleteEpicById(epic.getId());
+        manager.deleteAllTasks();
+        for (Status status : Status.values()) {
+            for (TaskType type : TaskType.values()) {
+                assertEquals(0, manager.countByStatus(status, type));
+            }
+        }
+    }
+
+    @Test
+    void testStatusIndexIsRestoredOnRollback() {
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            Task replacement = new Task("Task", "Desc", Status.DONE);
+            replacement.setId(task.getId());
+            tx.updateTask(replacement);
+            tx.createTask(new Task("New", "Desc", Status.DONE));
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(List.of(task), manager.getByStatus(Status.NEW, TaskType.TASK));
+        assertEquals(0, manager.countByStatus(Status.DONE, TaskType.TASK));
+    }
+
+    @Test
+    void testSearchNormalizesAndRanks() {
+        Task weak = manager.createTask(new Task("Ёлка", "Нарядить ёлочку", Status.NEW));
+        Task strong = manager.createTask(new Task("Елка, елка", "Купить елку", Status.NEW));
+
+        assertEquals(List.of(strong.getId(), weak.getId()), manager.search("ЕЛК", 10));
+        assertEquals(List.of(strong.getId()), manager.search("елка", 1));
+        assertEquals(List.of(weak.getId()), manager.search("ёлоч", 10));
+        assertThrows(IllegalArgumentException.class, () -> manager.search("елка", -1));
+    }
+
+    @Test
+    void testSearchIndexFollowsUpdatesAndDeletes() {
+        Task task = manager.createTask(new Task("Отчёт", "Квартальный", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Релиз", "Подготовка"));
+        Subtask subtask = manager.createSubtask(new Subtask("Сборка", "Релизная", Status.NEW, epic.getId()));
+        assertEquals(List.of(task.getId()), manager.search("отчет", 10));
+
+        task.setName("Презентация");
+        manager.updateTask(task);
+        assertEquals(List.of(), manager.search("отчет", 10));
+        assertEquals(List.of(task.getId()), manager.search("през", 10));
+
+        Epic renamed = new Epic("Выпуск", "Подготовка");
+        renamed.setId(epic.getId());
+        manager.updateEpic(renamed);
+        assertEquals(List.of(subtask.getId()), manager.search("релиз", 10));
+        assertEquals(List.of(epic.getId()), manager.search("выпуск", 10));
+
+        manager.deleteEpicById(epic.getId());
+        manager.deleteAllTasks();
+        assertEquals(List.of(), manager.search("подготовка", 10));
+        assertEquals(List.of(), manager.search("сборка", 10));
+        assertEquals(List.of(), manager.search("презентация", 10));
+    }
+
+    @Test
+    void testTasksInRangeIncludeCoveringAndPointTasks() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task covering = new Task("Covering", "Desc", Status.NEW);
+        covering.setStartTime(base);
+        covering.setDuration(Duration.ofHours(2));
+        manager.createTask(covering);
+        Task point = new Task("Point", "Desc", Status.NEW);
+        point.setStartTime(base.plusMinutes(30));
+        manager.createTask(point);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = new Subtask("Sub", "Desc", Status.NEW, epic.getId());
+        subtask.setStartTime(base.plusHours(2).plusMinutes(1));
+        subtask.setDuration(Duration.ofMinutes(30));
+        manager.createSubtask(subtask);
+
+        assertEquals(List.of(covering, point, subtask),
+                manager.getTasksInRange(base.plusMinutes(10), base.plusHours(3)));
+        assertEquals(List.of(covering), manager.getTasksInRange(base.plusMinutes(40), base.plusHours(2)));
+        assertEquals(List.of(covering), manager.getTasksInRange(base.plusMinutes(10), base.plusHours(3), 0, 1));
+        assertEquals(List.of(subtask), manager.getTasksInRange(base.plusMinutes(10), base.plusHours(3), 2, 1));
+        assertEquals(List.of(), manager.getTasksInRange(base.plusHours(2), base.plusHours(2)));
+        assertEquals(List.of(), manager.getTasksInRange(base.plusHours(1), base.plusHours(1)));
+    }
+
+    @Test
+    void testAutoSchedulePlacesTasksIntoGaps() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task busy = new Task("Busy", "Desc", Status.NEW);
+        busy.setStartTime(base.plusMinutes(30));
+        busy.setDuration(Duration.ofMinutes(60));
+        manager.createTask(busy);
+        Task shortTask = new Task("Short", "Desc", Status.NEW);
+        shortTask.setDuration(Duration.ofMinutes(20));
+        manager.createTask(shortTask);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask longSub = new Subtask("Long", "Desc", Status.NEW, epic.getId());
+        longSub.setDuration(Duration.ofMinutes(45));
+        manager.createSubtask(longSub);
+
+        List<Task> placed = manager.autoSchedule(List.of(shortTask, longSub), base);
+
+        assertEquals(List.of(shortTask, longSub), placed);
+        assertEquals(base, shortTask.getStartTime());
+        assertEquals(base.plusMinutes(91), longSub.getStartTime());
+        assertEquals(List.of(shortTask, busy, longSub), manager.getPrioritizedTasks());
+        assertEquals(longSub.getStartTime(), manager.getEpicById(epic.getId()).getStartTime());
+    }
+
+    @Test
+    void testAutoScheduleLetsLaterItemsUseEarlierGaps() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task busy = new Task("Busy", "Desc", Status.NEW);
+        busy.setStartTime(base.plusMinutes(30));
+        busy.setDuration(Duration.ofMinutes(60));
+        manager.createTask(busy);
+        Task longTask = new Task("Long", "Desc", Status.NEW);
+        longTask.setDuration(Duration.ofMinutes(45));
+        manager.createTask(longTask);
+        Task shortTask = new Task("Short", "Desc", Status.NEW);
+        shortTask.setDuration(Duration.ofMinutes(20));
+        manager.createTask(shortTask);
+
+        manager.autoSchedule(List.of(longTask, shortTask), base);
+
+        assertEquals(base.plusMinutes(91), longTask.getStartTime());
+        assertEquals(base, shortTask.getStartTime());
+        assertEquals(List.of(shortTask, busy, longTask), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void testAutoScheduleRejectsWholeBatch() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task fine = new Task("Fine", "Desc", Status.NEW);
+        fine.setDuration(Duration.ofMinutes(20));
+        manager.createTask(fine);
+        Task noDuration = manager.createTask(new Task("No duration", "Desc", Status.NEW));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.autoSchedule(List.of(fine, noDuration), base));
+        assertNull(fine.getStartTime());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+}
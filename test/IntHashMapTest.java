@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import taskmanager.IntHashMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashMapTest {
+
+    @Test
+    void shouldKeepInsertionOrderAndReplaceInPlace() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(30, "c");
+        map.put(10, "a");
+        map.put(20, "b");
+        map.put(10, "a2");
+
+        assertEquals(List.of(30, 10, 20), new ArrayList<>(map.keySet()));
+        assertEquals(List.of("c", "a2", "b"), new ArrayList<>(map.values()));
+
+        map.remove(10);
+        map.put(10, "a3");
+        assertEquals(List.of(30, 20, 10), new ArrayList<>(map.keySet()));
+        assertNull(map.get(99));
+        assertFalse(map.containsKey(Integer.valueOf(99)));
+    }
+
+    @Test
+    void shouldMatchLinkedHashMapUnderRandomOperations() {
+        IntHashMap<String> map = new IntHashMap<>();
+        Map<Integer, String> expected = new LinkedHashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        for (int key = -2_500; key < 2_500; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void shouldRemoveThroughIterator() {
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+        }
+        Iterator<Integer> keys = map.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next() % 2 == 0) keys.remove();
+        }
+        assertEquals(50, map.size());
+        assertFalse(map.containsKey(40));
+        assertEquals("v41", map.get(41));
+
+        map.ensureCapacity(1_000);
+        assertEquals(1, new ArrayList<>(map.keySet()).get(0));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void shouldCompactAfterMassRemoval() {
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            map.put(i, "v" + i);
+        }
+        for (int i = 0; i < 99_999; i++) {
+            map.remove(i);
+        }
+
+        assertEquals(1, map.size());
+        assertTrue(map.slotsInUse() <= 8, "Iteration must not walk removed slots");
+        assertEquals(List.of(99_999), new ArrayList<>(map.keySet()));
+        assertEquals("v99999", map.get(99_999));
+    }
+
+    @Test
+    void shouldKeepOrderWhenIteratorRemovalCompacts() {
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i, "v" + i);
+        }
+        Iterator<Integer> keys = map.keySet().iterator();
+        List<Integer> seen = new ArrayList<>();
+        while (keys.hasNext()) {
+            int key = keys.next();
+            seen.add(key);
+            if (key % 10 != 0) keys.remove();
+        }
+
+        assertEquals(1_000, seen.size());
+        assertEquals(100, map.size());
+        assertTrue(map.slotsInUse() < 1_000);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i += 10) {
+            expected.add(i);
+        }
+        assertEquals(expected, new ArrayList<>(map.keySet()));
+    }
+}
@@ -0,0 +1,201 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import taskmanager.FileBackedTaskManager;
+import taskmanager.ManagerSaveException;
+import taskmanager.MappedTaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTaskManagerTest {
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("mappedTest", ".db");
+        file.delete();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(file.toPath().getParent())) {
+            for (Path path : files.filter(p -> p.getFileName().toString().startsWith(file.getName())).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void shouldRestoreStateFromRecordsOnReopen() {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        Task task = new Task("Task", "Описание", Status.NEW);
+        task.setStartTime(LocalDateTime.of(2025, 3, 1, 9, 0, 15, 500));
+        task.setDuration(Duration.ofSeconds(90));
+        manager.createTask(task);
+        Task removed = manager.createTask(new Task("Removed", null, Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+
+        subtask.setStatus(Status.DONE);
+        manager.updateSubtask(subtask);
+        manager.deleteTaskById(removed.getId());
+        manager.close();
+
+        MappedTaskManager loaded = MappedTaskManager.loadFromFile(file);
+        Task restored = loaded.getTaskById(task.getId());
+        assertEquals(task.getStartTime(), restored.getStartTime());
+        assertEquals(task.getDuration(), restored.getDuration());
+        assertEquals("Описание", restored.getDescription());
+        assertNull(loaded.getTaskById(removed.getId()));
+        assertEquals(Status.DONE, loaded.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(subtask.getId()), loaded.getEpicById(epic.getId()).getSubtaskIds());
+        assertEquals(List.of(task), loaded.getPrioritizedTasks());
+
+        Task created = loaded.createTask(new Task("Next", "Desc", Status.NEW));
+        assertTrue(created.getId() > subtask.getId(), "Id удалённых задач не должны выдаваться повторно");
+        loaded.close();
+    }
+
+    @Test
+    void shouldUpdateInPlaceWithoutGrowingStringHeap() throws IOException {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        long recordsSize = Files.size(recordsFile(1));
+        long heapSize = Files.size(heapFile(1));
+
+        for (int i = 0; i < 10_000; i++) {
+            task.setStatus(i % 2 == 0 ? Status.DONE : Status.IN_PROGRESS);
+            manager.updateTask(task);
+        }
+        manager.close();
+
+        assertEquals(recordsSize, Files.size(recordsFile(1)));
+        assertEquals(heapSize, Files.size(heapFile(1)));
+        assertEquals(Status.IN_PROGRESS, MappedTaskManager.loadFromFile(file).getTaskById(task.getId()).getStatus());
+    }
+
+    @Test
+    void shouldReuseFreedRecordsAndCascadeEpicRemoval() throws IOException {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        for (int i = 0; i < 1000; i++) {
+            Epic epic = manager.createEpic(new Epic("Epic" + i, "Desc"));
+            manager.createSubtask(new Subtask("Sub" + i, "Desc", Status.NEW, epic.getId()));
+        }
+        long recordsSize = Files.size(recordsFile(1));
+        manager.deleteAllEpics();
+        for (int i = 0; i < 2000; i++) {
+            manager.createTask(new Task("Task" + i, "Desc", Status.NEW));
+        }
+        Epic epic = manager.createEpic(new Epic("Kept", "Desc"));
+        Subtask sub = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+        manager.deleteEpicById(epic.getId());
+        manager.close();
+
+        assertEquals(recordsSize, Files.size(recordsFile(1)));
+        MappedTaskManager loaded = MappedTaskManager.loadFromFile(file);
+        assertEquals(2000, loaded.getAllTasks().size());
+        assertTrue(loaded.getAllEpics().isEmpty());
+        assertNull(loaded.getSubtaskById(sub.getId()));
+    }
+
+    @Test
+    void shouldKeepOrderWhenFreedRecordIsReused() {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask first = manager.createSubtask(new Subtask("First", "Desc", Status.NEW, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Second", "Desc", Status.NEW, epic.getId()));
+        manager.deleteSubtaskById(first.getId());
+        Subtask third = manager.createSubtask(new Subtask("Third", "Desc", Status.NEW, epic.getId()));
+        List<Integer> subtaskIds = List.of(second.getId(), third.getId());
+        assertEquals(subtaskIds, manager.getEpicById(epic.getId()).getSubtaskIds());
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        manager.close();
+
+        MappedTaskManager loaded = MappedTaskManager.loadFromFile(file);
+        assertEquals(subtaskIds, loaded.getEpicById(epic.getId()).getSubtaskIds());
+        assertEquals(subtasks, loaded.getAllSubtasks());
+    }
+
+    @Test
+    void shouldCompactStringHeapIntoNextGeneration() throws IOException {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        String padding = "x".repeat(1000);
+        for (int i = 0; i < 3000; i++) {
+            task.setDescription(padding + i);
+            manager.updateTask(task);
+        }
+        manager.close();
+
+        assertFalse(Files.exists(heapFile(1)));
+        assertFalse(Files.exists(recordsFile(1)));
+        try (Stream<Path> files = Files.list(file.toPath().getParent())) {
+            List<String> names = files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(file.getName() + ".")).toList();
+            assertEquals(2, names.size(), names.toString());
+        }
+        assertEquals(padding + 2999, MappedTaskManager.loadFromFile(file).getTaskById(task.getId()).getDescription());
+    }
+
+    @Test
+    void shouldSwitchGenerationsByPointerAndDropStaleFiles() throws IOException {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        manager.close();
+        assertEquals("mapped,1", Files.readString(file.toPath()).strip());
+        Files.writeString(recordsFile(7), "leftover");
+        Files.writeString(heapFile(7), "leftover");
+
+        MappedTaskManager loaded = MappedTaskManager.loadFromFile(file);
+
+        assertEquals(task, loaded.getTaskById(task.getId()));
+        assertFalse(Files.exists(recordsFile(7)));
+        assertFalse(Files.exists(heapFile(7)));
+        loaded.close();
+    }
+
+    @Test
+    void shouldPersistTransactionOnCommit() {
+        MappedTaskManager manager = new MappedTaskManager(file);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("First", "Desc", Status.DONE, epic.getId()));
+            tx.createSubtask(new Subtask("Second", "Desc", Status.DONE, epic.getId()));
+        });
+        manager.close();
+
+        MappedTaskManager loaded = MappedTaskManager.loadFromFile(file);
+        assertEquals(2, loaded.getAllSubtasks().size());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    void shouldRejectFileInAnotherFormat() {
+        FileBackedTaskManager csv = new FileBackedTaskManager(file);
+        csv.createTask(new Task("Task", "Desc", Status.NEW));
+
+        assertThrows(ManagerSaveException.class, () -> MappedTaskManager.loadFromFile(file));
+    }
+
+    private Path recordsFile(long generation) {
+        return Path.of(file.getPath() + ".records." + generation);
+    }
+
+    private Path heapFile(long generation) {
+        return Path.of(file.getPath() + ".strings." + generation);
+    }
+}
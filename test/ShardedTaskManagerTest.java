@@ -0,0 +1,188 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import taskmanager.ManagerSaveException;
+import taskmanager.ShardedTaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedTaskManagerTest {
+    private File directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("shardedTest").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void shouldRestoreStateFromShards() {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        Task task = new Task("Task", "Описание", Status.NEW);
+        task.setStartTime(LocalDateTime.of(2025, 3, 1, 9, 0));
+        task.setDuration(Duration.ofMinutes(30));
+        manager.createTask(task);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask first = manager.createSubtask(new Subtask("First", "Desc", Status.DONE, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Second", "Desc", Status.NEW, epic.getId()));
+        Epic empty = manager.createEpic(new Epic("Empty", "Desc"));
+
+        ShardedTaskManager loaded = ShardedTaskManager.loadFromFile(directory, new ForkJoinPool(4));
+        assertEquals(List.of(task), loaded.getAllTasks());
+        assertEquals("Описание", loaded.getTaskById(task.getId()).getDescription());
+        assertEquals(List.of(epic, empty), loaded.getAllEpics());
+        assertEquals(List.of(first.getId(), second.getId()), loaded.getEpicById(epic.getId()).getSubtaskIds());
+        assertEquals(Status.IN_PROGRESS, loaded.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(task), loaded.getPrioritizedTasks());
+        assertTrue(loaded.createTask(new Task("Next", "Desc", Status.NEW)).getId() > empty.getId());
+    }
+
+    @Test
+    void shouldRewriteOnlyShardOfChangedEpic() throws IOException {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        manager.createTask(new Task("Task", "Desc", Status.NEW));
+        Epic edited = manager.createEpic(new Epic("Edited", "Desc"));
+        Epic untouched = manager.createEpic(new Epic("Untouched", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, edited.getId()));
+        manager.createSubtask(new Subtask("Other", "Desc", Status.NEW, untouched.getId()));
+        Object tasksFile = fileKey("tasks.csv");
+        Object untouchedFile = fileKey("epic-" + untouched.getId() + ".csv");
+        Object manifest = fileKey("manifest.csv");
+        Object editedFile = fileKey("epic-" + edited.getId() + ".csv");
+
+        subtask.setStatus(Status.DONE);
+        manager.updateSubtask(subtask);
+
+        assertEquals(tasksFile, fileKey("tasks.csv"));
+        assertEquals(untouchedFile, fileKey("epic-" + untouched.getId() + ".csv"));
+        assertEquals(manifest, fileKey("manifest.csv"));
+        assertNotEquals(editedFile, fileKey("epic-" + edited.getId() + ".csv"));
+        assertEquals(Status.DONE, ShardedTaskManager.loadFromFile(directory).getEpicById(edited.getId()).getStatus());
+    }
+
+    @Test
+    void shouldNotRestoreSubtaskFromShardOfPreviousEpic() {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, first.getId()));
+
+        subtask.setEpicId(second.getId());
+        manager.updateSubtask(subtask);
+        assertEquals(second.getId(), ShardedTaskManager.loadFromFile(directory)
+                .getSubtaskById(subtask.getId()).getEpicId());
+
+        manager.deleteSubtaskById(subtask.getId());
+        assertTrue(ShardedTaskManager.loadFromFile(directory).getAllSubtasks().isEmpty());
+    }
+
+    // Сбой после первой подмены файла: новый эпик уже записан с подзадачей, прежний ещё нет
+    @Test
+    void shouldKeepSubtaskOnceWhenOnlyNewShardWasReplaced() throws IOException {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Moved", "Desc", Status.NEW, first.getId()));
+        Path firstFile = directory.toPath().resolve("epic-" + first.getId() + ".csv");
+        Path secondFile = directory.toPath().resolve("epic-" + second.getId() + ".csv");
+        byte[] before = Files.readAllBytes(firstFile);
+
+        subtask.setEpicId(second.getId());
+        manager.updateSubtask(subtask);
+        Files.write(firstFile, before);
+        Files.setLastModifiedTime(firstFile,
+                FileTime.fromMillis(Files.getLastModifiedTime(secondFile).toMillis() - 60_000));
+
+        ShardedTaskManager loaded = ShardedTaskManager.loadFromFile(directory);
+        assertEquals(1, loaded.getAllSubtasks().size());
+        assertEquals(second.getId(), loaded.getSubtaskById(subtask.getId()).getEpicId());
+        assertTrue(loaded.getEpicById(first.getId()).getSubtaskIds().isEmpty());
+        assertEquals(List.of(subtask.getId()), loaded.getEpicById(second.getId()).getSubtaskIds());
+
+        loaded.createTask(new Task("Next", "Desc", Status.NEW));
+        assertFalse(Files.readString(firstFile).contains("Moved"), "stale row must be rewritten away");
+    }
+
+    // Файл нового эпика не подменяется: прежний не должен успеть потерять подзадачу
+    @Test
+    void shouldReplaceNewShardBeforePreviousOnMove() throws IOException {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Moved", "Desc", Status.NEW, first.getId()));
+        Files.createDirectory(directory.toPath().resolve("epic-" + second.getId() + ".csv.tmp"));
+
+        subtask.setEpicId(second.getId());
+        assertThrows(ManagerSaveException.class, () -> manager.updateSubtask(subtask));
+
+        ShardedTaskManager loaded = ShardedTaskManager.loadFromFile(directory);
+        assertEquals(first.getId(), loaded.getSubtaskById(subtask.getId()).getEpicId());
+    }
+
+    @Test
+    void shouldDeleteShardWithEpic() {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+        Epic kept = manager.createEpic(new Epic("Kept", "Desc"));
+
+        manager.deleteEpicById(epic.getId());
+
+        assertFalse(new File(directory, "epic-" + epic.getId() + ".csv").exists());
+        ShardedTaskManager loaded = ShardedTaskManager.loadFromFile(directory);
+        assertEquals(List.of(kept), loaded.getAllEpics());
+        assertNull(loaded.getSubtaskById(subtask.getId()));
+
+        manager.deleteAllEpics();
+        assertEquals(List.of("manifest.csv"), List.of(directory.list()));
+        assertTrue(ShardedTaskManager.loadFromFile(directory).getAllEpics().isEmpty());
+    }
+
+    @Test
+    void shouldPersistTransactionAndBatchOnce() {
+        ShardedTaskManager manager = new ShardedTaskManager(directory);
+        manager.inTransaction(tx -> {
+            Epic epic = tx.createEpic(new Epic("Epic", "Desc"));
+            tx.createSubtask(new Subtask("First", "Desc", Status.DONE, epic.getId()));
+            Epic dropped = tx.createEpic(new Epic("Dropped", "Desc"));
+            tx.createSubtask(new Subtask("Gone", "Desc", Status.NEW, dropped.getId()));
+            tx.deleteEpicById(dropped.getId());
+        });
+        manager.createTasks(List.of(new Task("A", "Desc", Status.NEW), new Task("B", "Desc", Status.NEW)));
+
+        ShardedTaskManager loaded = ShardedTaskManager.loadFromFile(directory);
+        assertEquals(1, loaded.getAllEpics().size());
+        assertEquals(1, loaded.getAllSubtasks().size());
+        assertEquals(Status.DONE, loaded.getAllEpics().get(0).getStatus());
+        assertEquals(2, loaded.getAllTasks().size());
+    }
+
+    private Object fileKey(String name) throws IOException {
+        return Files.readAttributes(directory.toPath().resolve(name), BasicFileAttributes.class).fileKey();
+    }
+}
@@ -1,6 +1,8 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import taskmanager.TaskConflictException;
 import taskmanager.TaskManager;
+import taskmanager.TaskType;
 import tasks.Epic;
 import tasks.Status;
 import tasks.Subtask;
@@ -8,7 +10,10 @@ import tasks.Task;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,4 +121,409 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(2, history.size());
         assertFalse(history.contains(t2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnHistoryPages() {
+        List<Task> viewed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = manager.createTask(new Task("t" + i, "desc", Status.NEW));
+            manager.getTaskById(task.getId());
+            viewed.add(task);
+        }
+
+        assertEquals(viewed.subList(1, 3), manager.getHistory(1, 2));
+        assertEquals(viewed.subList(3, 5), manager.getHistory(3, 10));
+        assertTrue(manager.getHistory(5, 10).isEmpty());
+        assertEquals(viewed.subList(2, 4), manager.getHistoryAfter(viewed.get(1).getId(), 2));
+        assertTrue(manager.getHistoryAfter(999, 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.getHistory(-1, 2));
+    }
+
+    @Test
+    public void shouldReturnPrioritizedPages() {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 9, 0);
+        List<Task> scheduled = new ArrayList<>();
+        for (int i = 4; i >= 0; i--) {
+            Task task = new Task("t" + i, "desc", Status.NEW);
+            task.setStartTime(start.plusHours(i));
+            task.setDuration(Duration.ofMinutes(30));
+            scheduled.add(0, manager.createTask(task));
+        }
+        manager.createTask(new Task("untimed", "desc", Status.NEW));
+
+        assertEquals(scheduled.subList(0, 2), manager.getPrioritizedTasks(0, 2));
+        assertEquals(scheduled.subList(4, 5), manager.getPrioritizedTasks(4, 2));
+        assertEquals(scheduled.subList(2, 5), manager.getPrioritizedTasksAfter(scheduled.get(1).getId(), 10));
+        assertTrue(manager.getPrioritizedTasksAfter(scheduled.get(4).getId(), 10).isEmpty());
+    }
+
+    @Test
+    public void shouldCreateBatchAndRejectConflictsPerItem() {
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 10, 0);
+        Task existing = timedTask("existing", start, 60);
+        manager.createTask(existing);
+
+        Task clash = timedTask("clash", start.plusMinutes(30), 60);
+        Task free = timedTask("free", start.plusHours(2), 60);
+        Task clashInBatch = timedTask("clashInBatch", start.plusHours(2).plusMinutes(30), 60);
+        Task untimed = new Task("untimed", "desc", Status.NEW);
+        List<Task> created = manager.createTasks(List.of(clash, free, clashInBatch, untimed));
+
+        assertEquals(4, created.size());
+        assertNull(created.get(0));
+        assertEquals(free, created.get(1));
+        assertNull(created.get(2));
+        assertEquals(untimed, created.get(3));
+        assertEquals(3, manager.getAllTasks().size());
+        assertEquals(List.of(existing, free), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    public void shouldCreateSubtaskBatchAndRecalculateEpics() {
+        Epic first = manager.createEpic(new Epic("first", "desc"));
+        Epic second = manager.createEpic(new Epic("second", "desc"));
+        List<Subtask> created = manager.createSubtasks(List.of(
+                new Subtask("a", "desc", Status.DONE, first.getId()),
+                new Subtask("b", "desc", Status.DONE, second.getId()),
+                new Subtask("orphan", "desc", Status.NEW, 999),
+                new Subtask("c", "desc", Status.NEW, first.getId())));
+
+        assertNull(created.get(2));
+        assertEquals(Status.IN_PROGRESS, manager.getEpicById(first.getId()).getStatus());
+        assertEquals(Status.DONE, manager.getEpicById(second.getId()).getStatus());
+        assertEquals(List.of(created.get(0).getId(), created.get(3).getId()),
+                manager.getEpicById(first.getId()).getSubtaskIds());
+    }
+
+    @Test
+    public void shouldUpdateBatchAndKeepSlotOfRejectedItem() {
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 10, 0);
+        Task movable = manager.createTask(timedTask("movable", start, 60));
+        Task blocker = manager.createTask(timedTask("blocker", start.plusHours(3), 60));
+        Epic epic = manager.createEpic(new Epic("epic", "desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("sub", "desc", Status.NEW, epic.getId()));
+
+        Task conflicting = timedTask("movable", start.plusHours(3), 60);
+        conflicting.setId(movable.getId());
+        Subtask done = new Subtask("sub", "desc", Status.DONE, epic.getId());
+        done.setId(subtask.getId());
+        Epic renamed = new Epic("renamed", "desc");
+        renamed.setId(epic.getId());
+        Task missing = new Task("missing", "desc", Status.NEW);
+        missing.setId(999);
+
+        List<Task> updated = manager.updateAll(List.of(conflicting, done, renamed, missing));
+
+        assertNull(updated.get(0));
+        assertEquals(done, updated.get(1));
+        assertEquals("renamed", updated.get(2).getName());
+        assertNull(updated.get(3));
+        assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(movable, blocker), manager.getPrioritizedTasks());
+    }
+
+    private static Task timedTask(String name, LocalDateTime start, int minutes) {
+        Task task = new Task(name, "desc", Status.NEW);
+        task.setStartTime(start);
+        task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+
+    @Test
+    public void shouldSelectByStatusWithinType() {
+        Task task = manager.createTask(new Task("Task", "Desc", Status.IN_PROGRESS));
+        manager.createTask(new Task("Other", "Desc", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.IN_PROGRESS, epic.getId()));
+
+        assertEquals(List.of(task), manager.getByStatus(Status.IN_PROGRESS, TaskType.TASK));
+        assertEquals(List.of(subtask), manager.getByStatus(Status.IN_PROGRESS, TaskType.SUBTASK));
+        assertEquals(List.of(epic), manager.getByStatus(Status.IN_PROGRESS, TaskType.EPIC));
+        assertEquals(1, manager.countByStatus(Status.NEW, TaskType.TASK));
+        assertEquals(0, manager.countByStatus(Status.DONE, TaskType.SUBTASK));
+    }
+
+    @Test
+    public void shouldSearchByWordPrefixes() {
+        Task task = manager.createTask(new Task("Купить молоко", "Зайти в магазин", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Переезд", "Купить коробки"));
+        manager.createTask(new Task("Позвонить маме", "Вечером", Status.NEW));
+
+        assertEquals(List.of(task.getId(), epic.getId()), manager.search("куп", 10));
+        assertEquals(List.of(task.getId()), manager.search("купить МАГ", 10));
+        assertEquals(List.of(), manager.search("купить вечером", 10));
+    }
+
+    @Test
+    public void shouldReturnTasksOverlappingRange() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task morning = scheduled("Morning", base, 90);
+        Task noon = scheduled("Noon", base.plusHours(3), 60);
+        Task evening = scheduled("Evening", base.plusHours(8), 30);
+        manager.createTask(morning);
+        manager.createTask(noon);
+        manager.createTask(evening);
+
+        assertEquals(List.of(morning, noon), manager.getTasksInRange(base.plusHours(1), base.plusHours(4)));
+        assertEquals(List.of(noon), manager.getTasksInRange(base.plusHours(1), base.plusHours(4), 1, 5));
+        assertEquals(List.of(), manager.getTasksInRange(base.plusMinutes(90), base.plusHours(3)));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.getTasksInRange(base.plusHours(1), base));
+    }
+
+    @Test
+    public void shouldReturnNothingForEmptyRange() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        manager.createTask(scheduled("Covering", base, 120));
+        manager.createTask(scheduled("Starting", base.plusHours(3), 30));
+
+        assertEquals(List.of(), manager.getTasksInRange(base.plusHours(1), base.plusHours(1)));
+        assertEquals(List.of(), manager.getTasksInRange(base.plusHours(3), base.plusHours(3)));
+    }
+
+    @Test
+    public void shouldFindEarliestFreeSlot() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        manager.createTask(scheduled("First", base, 60));
+        manager.createTask(scheduled("Second", base.plusMinutes(90), 60));
+
+        assertEquals(base.plusMinutes(61), manager.findEarliestFreeSlot(Duration.ofMinutes(20), base));
+        assertEquals(base.plusMinutes(151), manager.findEarliestFreeSlot(Duration.ofMinutes(40), base));
+        assertEquals(base.minusHours(2), manager.findEarliestFreeSlot(Duration.ofMinutes(30), base.minusHours(2)));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.findEarliestFreeSlot(Duration.ofMinutes(-1), base));
+    }
+
+    // Перенос через тот же объект, что вернул менеджер: прежний эпик пересчитывается, новый отслеживает подзадачу
+    @Test
+    public void shouldFindSameFreeSlotAsLinearScanAfterRemovals() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        List<Task> created = new ArrayList<>();
+        LocalDateTime cursor = base;
+        for (int i = 0; i < 300; i++) {
+            cursor = cursor.plusMinutes(1 + random.nextInt(15));
+            Task task = manager.createTask(scheduled("Slot " + i, cursor, random.nextInt(20)));
+            created.add(task);
+            cursor = task.getEndTime();
+        }
+        for (Task task : created) {
+            if (random.nextInt(3) == 0) manager.deleteTaskById(task.getId());
+        }
+
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime after = base.plusMinutes(random.nextInt(4000));
+            Duration duration = Duration.ofMinutes(random.nextInt(60));
+            assertEquals(linearFreeSlot(manager.getPrioritizedTasks(), duration, after),
+                    manager.findEarliestFreeSlot(duration, after), "slot for " + duration + " after " + after);
+        }
+    }
+
+    @Test
+    public void shouldMoveSubtaskBetweenEpicsOnUpdate() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask kept = manager.createSubtask(scheduled(new Subtask("Kept", "Desc", Status.NEW, first.getId()),
+                base, 30));
+        Subtask moved = manager.createSubtask(scheduled(new Subtask("Moved", "Desc", Status.DONE, first.getId()),
+                base.plusHours(2), 45));
+
+        Subtask stored = manager.getSubtaskById(moved.getId());
+        stored.setEpicId(second.getId());
+        manager.updateSubtask(stored);
+
+        Epic previous = manager.getEpicById(first.getId());
+        assertEquals(Status.NEW, previous.getStatus());
+        assertEquals(Duration.ofMinutes(30), previous.getDuration());
+        assertEquals(base.plusMinutes(30), previous.getEndTime());
+        assertEquals(List.of(kept.getId()), previous.getSubtaskIds());
+        Epic target = manager.getEpicById(second.getId());
+        assertEquals(Status.DONE, target.getStatus());
+        assertEquals(base.plusHours(2), target.getStartTime());
+        assertEquals(Duration.ofMinutes(45), target.getDuration());
+        assertEquals(List.of(moved.getId()), target.getSubtaskIds());
+
+        stored.setStatus(Status.IN_PROGRESS);
+        manager.updateSubtask(stored);
+        assertEquals(Status.IN_PROGRESS, manager.getEpicById(second.getId()).getStatus());
+        manager.deleteSubtaskById(moved.getId());
+        assertTrue(manager.getEpicById(second.getId()).getSubtaskIds().isEmpty());
+        assertEquals(Status.NEW, manager.getEpicById(second.getId()).getStatus());
+        assertEquals(List.of(kept.getId()), manager.getEpicById(first.getId()).getSubtaskIds());
+    }
+
+    @Test
+    public void shouldMoveSubtaskBetweenEpicsInBatch() {
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask moved = manager.createSubtask(new Subtask("Moved", "Desc", Status.DONE, first.getId()));
+        Subtask replacement = new Subtask("Moved", "Desc", Status.DONE, second.getId());
+        replacement.setId(moved.getId());
+
+        assertEquals(List.of(replacement), manager.updateAll(List.of(replacement)));
+
+        assertTrue(manager.getEpicById(first.getId()).getSubtaskIds().isEmpty());
+        assertEquals(Status.NEW, manager.getEpicById(first.getId()).getStatus());
+        assertEquals(List.of(moved.getId()), manager.getEpicById(second.getId()).getSubtaskIds());
+        assertEquals(Status.DONE, manager.getEpicById(second.getId()).getStatus());
+    }
+
+    @Test
+    public void shouldCommitTransaction() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("First", "Desc", Status.DONE, epic.getId()));
+            tx.createSubtask(new Subtask("Second", "Desc", Status.DONE, epic.getId()));
+            tx.createTask(new Task("Task", "Desc", Status.NEW));
+        });
+
+        assertEquals(2, manager.getSubtasksByEpicId(epic.getId()).size());
+        assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(1, manager.getAllTasks().size());
+    }
+
+    @Test
+    public void shouldRollBackTransactionOnConflict() {
+        LocalDateTime base = LocalDateTime.of(2025, 8, 1, 9, 0);
+        Task slot = manager.createTask(scheduled("Slot", base, 60));
+        Task deleted = manager.createTask(new Task("Deleted", "Desc", Status.NEW));
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        Subtask done = manager.createSubtask(scheduled(new Subtask("Done", "Desc", Status.DONE, first.getId()),
+                base.plusHours(2), 30));
+        Subtask fresh = manager.createSubtask(new Subtask("Fresh", "Desc", Status.NEW, first.getId()));
+        Subtask other = manager.createSubtask(new Subtask("Other", "Desc", Status.DONE, second.getId()));
+
+        assertThrows(TaskConflictException.class, () -> manager.inTransaction(tx -> {
+            Epic renamed = new Epic("Renamed", "Desc");
+            renamed.setId(first.getId());
+            tx.updateEpic(renamed);
+            Subtask moved = scheduled(new Subtask("Done", "Desc", Status.IN_PROGRESS, second.getId()),
+                    base.plusHours(3), 30);
+            moved.setId(done.getId());
+            tx.updateSubtask(moved);
+            tx.deleteTaskById(deleted.getId());
+            tx.deleteEpicById(second.getId());
+            Epic added = tx.createEpic(new Epic("Added", "Desc"));
+            tx.createSubtask(new Subtask("Added", "Desc", Status.DONE, added.getId()));
+            tx.createTasks(List.of(new Task("Free", "Desc", Status.NEW), scheduled("Clash", base.plusMinutes(30), 10)));
+        }));
+
+        assertEquals(List.of(slot, deleted), manager.getAllTasks());
+        assertEquals(List.of(first, second), manager.getAllEpics());
+        assertEquals("First", manager.getEpicById(first.getId()).getName());
+        assertEquals(List.of(done.getId(), fresh.getId()), manager.getEpicById(first.getId()).getSubtaskIds());
+        assertEquals(List.of(other.getId()), manager.getEpicById(second.getId()).getSubtaskIds());
+        assertEquals(Status.IN_PROGRESS, manager.getEpicById(first.getId()).getStatus());
+        assertEquals(base.plusHours(2), manager.getEpicById(first.getId()).getStartTime());
+        assertEquals(Status.DONE, manager.getEpicById(second.getId()).getStatus());
+        Subtask restored = manager.getSubtaskById(done.getId());
+        assertEquals(first.getId(), restored.getEpicId());
+        assertEquals(Status.DONE, restored.getStatus());
+        assertEquals(List.of(slot, done), manager.getPrioritizedTasks());
+        assertEquals(3, manager.getAllSubtasks().size());
+        assertEquals(other.getId() + 1, manager.createTask(new Task("Next", "Desc", Status.NEW)).getId());
+    }
+
+    @Test
+    public void shouldRollBackTransactionOnAnyException() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+            tx.deleteAllTasks();
+            throw new IllegalStateException("stop");
+        }));
+
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertTrue(manager.getEpicById(epic.getId()).getSubtaskIds().isEmpty());
+        assertEquals(Status.NEW, manager.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    public void shouldAutoScheduleIntoGaps() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task busy = manager.createTask(scheduled("Busy", base.plusMinutes(30), 60));
+        Task shortTask = new Task("Short", "Desc", Status.NEW);
+        shortTask.setDuration(Duration.ofMinutes(20));
+        int shortId = manager.createTask(shortTask).getId();
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask longSub = new Subtask("Long", "Desc", Status.NEW, epic.getId());
+        longSub.setDuration(Duration.ofMinutes(45));
+        int longId = manager.createSubtask(longSub).getId();
+
+        List<Task> placed = manager.autoSchedule(List.of(shortTask, longSub), base);
+
+        assertEquals(List.of(shortTask, longSub), placed);
+        assertEquals(base, manager.getTaskById(shortId).getStartTime());
+        assertEquals(base.plusMinutes(91), manager.getSubtaskById(longId).getStartTime());
+        assertEquals(List.of(shortTask, busy, longSub), manager.getPrioritizedTasks());
+        assertEquals(base.plusMinutes(91), manager.getEpicById(epic.getId()).getStartTime());
+    }
+
+    @Test
+    public void shouldLetLaterAutoScheduledItemsUseEarlierGaps() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        manager.createTask(scheduled("Busy", base.plusMinutes(30), 60));
+        Task longTask = new Task("Long", "Desc", Status.NEW);
+        longTask.setDuration(Duration.ofMinutes(45));
+        manager.createTask(longTask);
+        Task shortTask = new Task("Short", "Desc", Status.NEW);
+        shortTask.setDuration(Duration.ofMinutes(20));
+        manager.createTask(shortTask);
+
+        manager.autoSchedule(List.of(longTask, shortTask), base);
+
+        assertEquals(base.plusMinutes(91), manager.getTaskById(longTask.getId()).getStartTime());
+        assertEquals(base, manager.getTaskById(shortTask.getId()).getStartTime());
+    }
+
+    @Test
+    public void shouldAutoScheduleWithoutTouchingHistory() {
+        Task task = new Task("Task", "Desc", Status.NEW);
+        task.setDuration(Duration.ofMinutes(20));
+        manager.createTask(task);
+
+        manager.autoSchedule(List.of(task), LocalDateTime.of(2025, 3, 1, 9, 0));
+
+        assertTrue(manager.getHistory().isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.autoSchedule(List.of(task), LocalDateTime.of(2025, 3, 2, 9, 0)));
+    }
+
+    @Test
+    public void shouldRejectWholeAutoScheduleBatch() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task fine = new Task("Fine", "Desc", Status.NEW);
+        fine.setDuration(Duration.ofMinutes(20));
+        manager.createTask(fine);
+        Task noDuration = manager.createTask(new Task("No duration", "Desc", Status.NEW));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.autoSchedule(List.of(fine, noDuration), base));
+        assertNull(manager.getTaskById(fine.getId()).getStartTime());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
+    // Эталон: проход по всем интервалам по возрастанию начала
+    static LocalDateTime linearFreeSlot(List<Task> prioritized, Duration duration, LocalDateTime after) {
+        LocalDateTime start = after;
+        for (Task slot : prioritized) {
+            if (slot.getEndTime() == null || slot.getEndTime().isBefore(start)) continue;
+            if (slot.getStartTime().isAfter(start.plus(duration))) return start;
+            LocalDateTime next = slot.getEndTime().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+            if (next.isAfter(start)) start = next;
+        }
+        return start;
+    }
+
+    private static Task scheduled(String name, LocalDateTime start, int minutes) {
+        return scheduled(new Task(name, "Desc", Status.NEW), start, minutes);
+    }
+
+    private static <S extends Task> S scheduled(S task, LocalDateTime start, int minutes) {
+        task.setStartTime(start);
+        task.setDuration(Duration.ofMinutes(minutes));
+        return task;
+    }
+}
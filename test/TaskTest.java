@@ -2,7 +2,12 @@ import org.junit.jupiter.api.Test;
 import tasks.Status;
 import tasks.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TaskTest {
     @Test
@@ -13,4 +18,62 @@ class TaskTest {
         t2.setId(1);
         assertEquals(t1, t2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testWholeMinuteTimesRoundTrip() {
+        Task task = new Task("Task", "Desc", Status.NEW);
+        assertNull(task.getStartTime());
+        assertNull(task.getDuration());
+        assertNull(task.getEndTime());
+        assertEquals("", task.getStartTimeString());
+        assertEquals("", task.getDurationMinutesString());
+
+        task.setStartTime(LocalDateTime.of(2025, 3, 1, 9, 15));
+        task.setDuration(Duration.ofMinutes(45));
+        assertEquals(LocalDateTime.of(2025, 3, 1, 9, 15), task.getStartTime());
+        assertEquals(Duration.ofMinutes(45), task.getDuration());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 10, 0), task.getEndTime());
+        assertEquals("2025-03-01T09:15", task.getStartTimeString());
+        assertEquals("45", task.getDurationMinutesString());
+
+        task.setStartTime(null);
+        assertNull(task.getStartTime());
+        assertNull(task.getEndTime());
+    }
+
+    @Test
+    void testSubMinuteTimesAreKeptExactly() {
+        Task task = new Task("Task", "Desc", Status.NEW);
+        LocalDateTime start = LocalDateTime.of(1969, 12, 31, 23, 59, 30, 123_456_789);
+        Duration duration = Duration.ofSeconds(90, 5);
+        task.setStartTime(start);
+        task.setDuration(duration);
+        assertEquals(start, task.getStartTime());
+        assertEquals(duration, task.getDuration());
+        assertEquals(start.plus(duration), task.getEndTime());
+        assertEquals(start.toString(), task.getStartTimeString());
+    }
+
+    @Test
+    void testOrderingMixesWholeAndSubMinuteStarts() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        Task early = timed(1, base);
+        Task precise = timed(2, base.plusSeconds(1));
+        Task late = timed(3, base.plusMinutes(1));
+        Task sameMinute = timed(4, base);
+        Task unscheduled = timed(5, null);
+
+        assertTrue(early.compareTo(precise) < 0);
+        assertTrue(precise.compareTo(late) < 0);
+        assertTrue(early.compareTo(sameMinute) < 0);
+        assertTrue(late.compareTo(unscheduled) < 0);
+        assertTrue(unscheduled.compareTo(early) > 0);
+    }
+
+    private static Task timed(int id, LocalDateTime start) {
+        Task task = new Task("Task" + id, "Desc", Status.NEW);
+        task.setId(id);
+        task.setStartTime(start);
+        return task;
+    }
+}
@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import taskmanager.FileBackedTaskManager;
+import taskmanager.WriteBehindTaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindTaskManagerTest {
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("writeBehindTest", ".csv");
+        file.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void shouldCoalesceBurstIntoSingleWriteOnFlush() {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, Duration.ofHours(1), 10_000);
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        for (int i = 0; i < 1000; i++) {
+            task.setDescription("Desc " + i);
+            manager.updateTask(task);
+        }
+
+        assertFalse(file.exists(), "Nothing should be written before the deadline");
+        assertEquals(1001, manager.getPendingOps());
+
+        manager.flush();
+        assertEquals(0, manager.getPendingOps());
+        assertEquals("Desc 999", FileBackedTaskManager.loadFromFile(file).getTaskById(task.getId()).getDescription());
+        manager.close();
+    }
+
+    @Test
+    void shouldWriteWhenPendingLimitReached() throws Exception {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, Duration.ofHours(1), 10);
+        for (int i = 0; i < 9; i++) {
+            manager.createTask(new Task("Task" + i, "Desc", Status.NEW));
+        }
+        assertFalse(manager.pendingWrite().isDone());
+
+        manager.createTask(new Task("Task9", "Desc", Status.NEW));
+        manager.pendingWrite().get(5, TimeUnit.SECONDS);
+
+        assertEquals(10, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+        manager.close();
+    }
+
+    @Test
+    void shouldWriteAfterMaxLatency() throws Exception {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, Duration.ofMillis(50), 10_000);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+
+        manager.pendingWrite().get(5, TimeUnit.SECONDS);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        manager.close();
+    }
+
+    // Каждый снимок на диске согласован: статус эпика совпадает со статусом его единственной подзадачи
+    @Test
+    void shouldWriteConsistentEpicWhileSubtasksChange() throws Exception {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, Duration.ZERO, 1);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+        manager.flush();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger checked = new AtomicInteger();
+        AtomicReference<String> mismatch = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get() && mismatch.get() == null) {
+                try {
+                    List<String> lines = Files.readAllLines(file.toPath());
+                    String epicStatus = lines.get(1).split(",")[3];
+                    String subtaskStatus = lines.get(2).split(",")[3];
+                    if (!epicStatus.equals(subtaskStatus)) mismatch.set(lines.toString());
+                    checked.incrementAndGet();
+                } catch (IOException e) {
+                    mismatch.set(e.toString());
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            Subtask next = new Subtask("Sub", "Desc", i % 2 == 0 ? Status.DONE : Status.NEW, epic.getId());
+            next.setId(subtask.getId());
+            manager.updateSubtask(next);
+        }
+        running.set(false);
+        reader.join();
+        manager.close();
+
+        assertNull(mismatch.get());
+        assertTrue(checked.get() > 0);
+    }
+
+    @Test
+    void shouldPersistOnCloseAndWriteThroughAfterwards() {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, Duration.ofHours(1), 10_000);
+        manager.createTask(new Task("Task", "Desc", Status.NEW));
+        manager.close();
+        assertEquals(1, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+
+        manager.createTask(new Task("Late", "Desc", Status.NEW));
+        assertEquals(2, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+    }
+}